@@ -11,25 +11,18 @@ import edu.cwru.sepia.util.Direction;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class AstarAgent extends Agent {
 
-    List<MapLocation> enemyLocations = new LinkedList<>();
-    int delay = 0;
-    //for map location class, I defined the cameFrom variable and cost
-    //cost here means the g cost of the map location
+    //map location is only used for the positions of units now, the planners work on cell indices
+    //and the path is a GridPath, so nothing is allocated per searched cell
     class MapLocation
     {
         public int x, y;
-        public double cost;
-        public MapLocation cameFrom;
-        public MapLocation(int x, int y, MapLocation cameFrom, double cost)
+        public MapLocation(int x, int y)
         {
             this.x = x;
             this.y = y;
-            this.cameFrom = cameFrom;
-            this.cost = cost;
         }
 
         //we overrider the equals method so that the comparison in the lists will be carried out better,
@@ -49,18 +42,76 @@ public class AstarAgent extends Agent {
         }
     }
 
-    Stack<MapLocation> path;
+    GridPath path;
     int footmanID, townhallID, enemyFootmanID;
-    MapLocation nextLoc;
+    //the cell the footman is currently walking to, -1 before the first step
+    int nextCell = -1;
+    private final PlannerMode plannerMode;
+    private final Heuristic heuristic;
+    private final boolean benchmark;
+    private final ReplanPolicy replanPolicy;
+    private GridPlanner planner;
+    private OccupancyBitmap obstacles;
+    private PathCache pathCache;
+
+    //how many plans are remembered for the enemy footman positions seen most recently
+    private static final int PATH_CACHE_SIZE = 64;
+
+    //how many times each planner searches the map when benchmarking
+    private static final int BENCHMARK_RUNS = 20;
 
     private long totalPlanTime = 0; // nsecs
     private long totalExecutionTime = 0; //nsecs
+    private long totalExpandedNodes = 0;
+    private int totalPlans = 0;
 
     public AstarAgent(int playernum)
+    {
+        this(playernum, new String[0]);
+    }
+
+    //args[0] optionally names the planner, "astar" (the default), "incremental", "jps", "bidirectional" or "hierarchical"
+    //args[1] optionally names the heuristic, "chebyshev" (the default), "octile" or "euclidean"
+    //args[2] optionally turns on the planner benchmark at the start of the episode, "true" or "false" (the default)
+    //args[3] optionally sets how many steps ahead of the footman the enemy footman makes us replan, 3 by default
+    public AstarAgent(int playernum, String[] args)
     {
         super(playernum);
 
-        System.out.println("Constructed edu.cwru.sepia.agent.AstarAgent");
+        plannerMode = args.length > 0 ? parseArgument(PlannerMode.class, args[0]) : PlannerMode.ASTAR;
+        heuristic = args.length > 1 ? parseArgument(Heuristic.class, args[1]) : Heuristic.CHEBYSHEV;
+        benchmark = args.length > 2 && Boolean.parseBoolean(args[2]);
+        replanPolicy = new ReplanPolicy(args.length > 3 ? parseLookahead(args[3]) : ReplanPolicy.DEFAULT_LOOKAHEAD);
+
+        System.out.println("Constructed edu.cwru.sepia.agent.AstarAgent using the " + plannerMode + " planner with the " + heuristic + " heuristic");
+    }
+
+    private static <E extends Enum<E>> E parseArgument(Class<E> type, String name)
+    {
+        try {
+            return Enum.valueOf(type, name.toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("Unknown " + type.getSimpleName() + " " + name + ", expected one of " + Arrays.toString(type.getEnumConstants()));
+            System.exit(1);
+            return null;
+        }
+    }
+
+    private static int parseLookahead(String value)
+    {
+        int lookahead = -1;
+        try {
+            lookahead = Integer.parseInt(value);
+        }
+        catch (NumberFormatException e) {
+            //reported below along with negative numbers
+        }
+        if (lookahead < 0) {
+            System.err.println("Invalid replan lookahead " + value + ", expected a number of steps of at least 0");
+            System.exit(1);
+        }
+        return lookahead;
     }
 
     @Override
@@ -134,6 +185,10 @@ public class AstarAgent extends Agent {
             return null;
         }
 
+        if(benchmark) {
+            benchmarkPlanners(newstate);
+        }
+
         long startTime = System.nanoTime();
         path = findPath(newstate);
         totalPlanTime += System.nanoTime() - startTime;
@@ -148,30 +203,40 @@ public class AstarAgent extends Agent {
 
         Map<Integer, Action> actions = new HashMap<Integer, Action>();
 
-        if(shouldReplanPath(newstate, statehistory, path)) {
+        Unit.UnitView footmanUnit = newstate.getUnit(footmanID);
+
+        int xExtent = newstate.getXExtent();
+        int footmanX = footmanUnit.getXPosition();
+        int footmanY = footmanUnit.getYPosition();
+        int footmanCell = footmanY * xExtent + footmanX;
+
+        //the hierarchical planner only refines the first few legs of its route, so once the footman has
+        //walked all of them we plan again to get the next ones
+        boolean continuePath = path != null && path.isEmpty() && path.isPartial() && footmanCell == nextCell;
+
+        //the policy is asked every turn so it keeps track of the enemy, even when the path is planned again anyway
+        boolean replan = shouldReplanPath(newstate, statehistory, path);
+        if(continuePath || replan) {
             long planStartTime = System.nanoTime();
             path = findPath(newstate);
+            //the new path starts next to where the footman stands, so take its first step rather than finishing the old one
+            nextCell = -1;
             planTime = System.nanoTime() - planStartTime;
             totalPlanTime += planTime;
         }
 
-        Unit.UnitView footmanUnit = newstate.getUnit(footmanID);
-
-        int footmanX = footmanUnit.getXPosition();
-        int footmanY = footmanUnit.getYPosition();
-
-        if(!path.empty() && (nextLoc == null || (footmanX == nextLoc.x && footmanY == nextLoc.y))) {
+        if(path != null && !path.isEmpty() && (nextCell == -1 || footmanCell == nextCell)) {
 
             // stat moving to the next step in the path
-            nextLoc = path.pop();
+            nextCell = path.pop();
 
-            System.out.println("Moving to (" + nextLoc.x + ", " + nextLoc.y + ")");
+            System.out.println("Moving to (" + nextCell % xExtent + ", " + nextCell / xExtent + ")");
         }
 
-        if(nextLoc != null && (footmanX != nextLoc.x || footmanY != nextLoc.y))
+        if(nextCell != -1 && footmanCell != nextCell)
         {
-            int xDiff = nextLoc.x - footmanX;
-            int yDiff = nextLoc.y - footmanY;
+            int xDiff = nextCell % xExtent - footmanX;
+            int yDiff = nextCell / xExtent - footmanY;
 
             // figure out the direction the footman needs to move in
             Direction nextDirection = getNextDirection(xDiff, yDiff);
@@ -208,6 +273,10 @@ public class AstarAgent extends Agent {
     public void terminalStep(State.StateView newstate, History.HistoryView statehistory) {
         System.out.println("Total turns: " + newstate.getTurnNumber());
         System.out.println("Total planning time: " + totalPlanTime/1e9);
+        System.out.println("Total plans: " + totalPlans);
+        System.out.println("Total nodes expanded: " + totalExpandedNodes);
+        if (pathCache != null)
+            System.out.println("Path cache hits: " + pathCache.getHits() + ", misses: " + pathCache.getMisses());
         System.out.println("Total execution time: " + totalExecutionTime/1e9);
         System.out.println("Total time: " + (totalExecutionTime + totalPlanTime)/1e9);
     }
@@ -240,42 +309,18 @@ public class AstarAgent extends Agent {
      * @return
      */
 
-    //this strategy simply check if the footman is in the way of our path, if it is, return true, if not, return false
-    private boolean shouldReplanPath(State.StateView state, History.HistoryView history, Stack<MapLocation> currentPath)
+    //asks the replan policy, which only cares about the enemy footman when it is on the next few cells of the
+    //path or about to step onto the next one. with no enemy footman left there is never a reason to replan
+    private boolean shouldReplanPath(State.StateView state, History.HistoryView history, GridPath currentPath)
     {
-        boolean hasEnemyMoved = false;
-
-        int enemyXPosition = Integer.MIN_VALUE;
-        int enemyYPosition = Integer.MIN_VALUE;
-        try {
-            enemyXPosition = state.getUnit(enemyFootmanID).getXPosition();
-            enemyYPosition = state.getUnit(enemyFootmanID).getYPosition();
-
-            //enemylocations are added and find the extinct values out of it, if there are more than 2 value
-            //we know enemy is moving, so we
-            enemyLocations.add(new MapLocation(enemyXPosition,enemyYPosition,null, 0));
-            if (enemyLocations.stream().distinct().collect(Collectors.toList()).size() > 1) {
-                hasEnemyMoved = true;
-                enemyLocations.clear();
-                delay = 2;
-            }
-            if (delay > 0){
-                delay --;
-                return true;
-            }
-        }
-        catch (NullPointerException e)
-        {
-            System.out.println("no need to replan since no enemy footman");
-        }
-
-        try {
-            System.out.println(currentPath.contains(new MapLocation(enemyXPosition, enemyYPosition, null, 0)) || hasEnemyMoved);
-            return currentPath.contains(new MapLocation(enemyXPosition, enemyYPosition, null, 0)) || hasEnemyMoved;
-        }
-        catch (NullPointerException e){
+        if(enemyFootmanID == -1)
             return false;
-        }
+        Unit.UnitView enemyFootmanUnit = state.getUnit(enemyFootmanID);
+        if(enemyFootmanUnit == null)
+            return false;
+
+        return replanPolicy.shouldReplan(currentPath, nextCell, enemyFootmanUnit.getXPosition(), enemyFootmanUnit.getYPosition(),
+                state.getXExtent(), state.getYExtent());
     }
 
     /**
@@ -285,32 +330,80 @@ public class AstarAgent extends Agent {
      * @param state
      * @return
      */
-    private Stack<MapLocation> findPath(State.StateView state)
+    private GridPath findPath(State.StateView state)
     {
         Unit.UnitView townhallUnit = state.getUnit(townhallID);
         Unit.UnitView footmanUnit = state.getUnit(footmanID);
 
-        MapLocation startLoc = new MapLocation(footmanUnit.getXPosition(), footmanUnit.getYPosition(), null, 0);
+        MapLocation startLoc = new MapLocation(footmanUnit.getXPosition(), footmanUnit.getYPosition());
 
-        MapLocation goalLoc = new MapLocation(townhallUnit.getXPosition(), townhallUnit.getYPosition(), null, 0);
+        MapLocation goalLoc = new MapLocation(townhallUnit.getXPosition(), townhallUnit.getYPosition());
 
         MapLocation footmanLoc = null;
         if(enemyFootmanID != -1) {
             Unit.UnitView enemyFootmanUnit = state.getUnit(enemyFootmanID);
-            footmanLoc = new MapLocation(enemyFootmanUnit.getXPosition(), enemyFootmanUnit.getYPosition(), null, 0);
+            footmanLoc = new MapLocation(enemyFootmanUnit.getXPosition(), enemyFootmanUnit.getYPosition());
         }
 
-        // get resource locations
-        List<Integer> resourceIDs = state.getAllResourceIds();
-        Set<MapLocation> resourceLocations = new HashSet<MapLocation>();
-        for(Integer resourceID : resourceIDs)
-        {
-            ResourceNode.ResourceView resource = state.getResourceNode(resourceID);
+        loadMap(state);
+
+        return AstarSearch(startLoc, goalLoc, state.getXExtent(), state.getYExtent(), footmanLoc, obstacles);
+    }
+
+    // get resource locations, trees never move so the bitmap and the planner are only built once per map
+    private void loadMap(State.StateView state)
+    {
+        if(obstacles == null || obstacles.getXExtent() != state.getXExtent() || obstacles.getYExtent() != state.getYExtent()) {
+            obstacles = new OccupancyBitmap(state.getXExtent(), state.getYExtent());
+            planner = plannerMode.create(state.getXExtent(), state.getYExtent(), heuristic);
+            pathCache = new PathCache(PATH_CACHE_SIZE, state.getXExtent() * state.getYExtent());
+            for(Integer resourceID : state.getAllResourceIds())
+            {
+                ResourceNode.ResourceView resource = state.getResourceNode(resourceID);
+
+                obstacles.set(resource.getXPosition(), resource.getYPosition());
+            }
+        }
+    }
+
+    //runs every planner from scratch on the current map and positions and prints how they compare.
+    //each run gets a fresh planner so the incremental one is measured on a full search as well
+    private void benchmarkPlanners(State.StateView state)
+    {
+        loadMap(state);
 
-            resourceLocations.add(new MapLocation(resource.getXPosition(), resource.getYPosition(), null, 0));
+        int xExtent = state.getXExtent();
+        int yExtent = state.getYExtent();
+        Unit.UnitView footmanUnit = state.getUnit(footmanID);
+        Unit.UnitView townhallUnit = state.getUnit(townhallID);
+        int start = footmanUnit.getYPosition() * xExtent + footmanUnit.getXPosition();
+        int goal = townhallUnit.getYPosition() * xExtent + townhallUnit.getXPosition();
+        int blocker = -1;
+        if(enemyFootmanID != -1) {
+            Unit.UnitView enemyFootmanUnit = state.getUnit(enemyFootmanID);
+            blocker = enemyFootmanUnit.getYPosition() * xExtent + enemyFootmanUnit.getXPosition();
         }
 
-        return AstarSearch(startLoc, goalLoc, state.getXExtent(), state.getYExtent(), footmanLoc, resourceLocations);
+        System.out.println("Planner benchmark on a " + xExtent + "x" + yExtent + " map, " + heuristic + " heuristic, " + BENCHMARK_RUNS + " runs each");
+        for(PlannerMode mode : PlannerMode.values())
+        {
+            long elapsed = 0;
+            int expanded = 0;
+            int[] cells = null;
+            boolean partial = false;
+            for(int run = 0; run < BENCHMARK_RUNS; run++)
+            {
+                GridPlanner candidate = mode.create(xExtent, yExtent, heuristic);
+                long runStart = System.nanoTime();
+                cells = candidate.search(start, goal, obstacles, blocker);
+                elapsed += System.nanoTime() - runStart;
+                expanded = candidate.getExpandedNodes();
+                partial = candidate.isPartial();
+            }
+            System.out.println(mode + ": " + (elapsed / BENCHMARK_RUNS) / 1e6 + " ms per search, "
+                    + expanded + " nodes expanded, "
+                    + (cells == null ? "no path" : cells.length + " steps" + (partial ? " refined so far" : "")));
+        }
     }
     /**
      * This is the method you will implement for the assignment. Your implementation
@@ -319,10 +412,10 @@ public class AstarAgent extends Agent {
      *
      * Therefore your you need to find some possible adjacent steps which are in range 
      * and are not trees or the enemy footman.
-     * Hint: Set<MapLocation> resourceLocations contains the locations of trees
+     * Hint: OccupancyBitmap obstacles has a bit set for the locations of trees
      *
-     * You will return a Stack of positions with the top of the stack being the first space to move to
-     * and the bottom of the stack being the last space to move to. If there is no path to the townhall
+     * You will return a GridPath of positions with the cursor at the first space to move to
+     * and the last cell being the last space to move to. If there is no path to the townhall
      * then return null from the method and the agent will print a message and do nothing.
      * The code to execute the plan is provided for you in the middleStep method.
      *
@@ -342,7 +435,7 @@ public class AstarAgent extends Agent {
      * yExtent would be 3 for this map with valid Y coordinates in the range of [0, 2]
      * y=0 is the top most row and y=2 is the bottom most row
      *
-     * resourceLocations would be {(0,1), (1,1), (2,1), (4,1)}
+     * obstacles would have the bits for (0,1), (1,1), (2,1) and (4,1) set
      *
      * The path would be
      *
@@ -352,100 +445,41 @@ public class AstarAgent extends Agent {
      * (2,2)
      * (1,2)
      *
-     * Notice how the initial footman position and the townhall position are not included in the path stack
+     * Notice how the initial footman position and the townhall position are not included in the path
      *
      * @param start Starting position of the footman
      * @param goal MapLocation of the townhall
      * @param xExtent Width of the map
      * @param yExtent Height of the map
-     * @param resourceLocations Set of positions occupied by resources
-     * @return Stack of positions with top of stack being first move in plan
+     * @param enemyFootmanLoc Position of the enemy footman, or null if there is none
+     * @param obstacles Bitmap of positions occupied by resources
+     * @return Path of cell indices with the first move in plan at the cursor
      */
-    private Stack<MapLocation> AstarSearch(MapLocation start, MapLocation goal, int xExtent, int yExtent, MapLocation enemyFootmanLoc, Set<MapLocation> resourceLocations)
+    private GridPath AstarSearch(MapLocation start, MapLocation goal, int xExtent, int yExtent, MapLocation enemyFootmanLoc, OccupancyBitmap obstacles)
     {
-        //these are map size values that doesn't change
-        final int MIN_Y = 0;
-        final int MIN_X = 0;
-        final int MAX_Y = yExtent - 1;
-        final int MAX_X = xExtent - 1;
-
-        //this is the approx squareroot of 2, it is related to the heuristic I adapted for this problem
-
-        final double LEAST_DISTANCE_UNIT = 1.5;
-        //result is the place to hold the final path
-        //yetToVisit works as the openlist, it shows the possible list that currentnode can go
-        //visited works as the closList, it holds all the past currentlists
-        //yetToVisit holds the starting location at the beginning
-        Stack<MapLocation> result = new Stack<>();
-        List<MapLocation> yetToVisit = new LinkedList<>();
-        Stack<MapLocation> visited = new Stack<>();
-        yetToVisit.add(start);
-
-        //we will keep iterating until ther's no more location footman can go to
-        while (!yetToVisit.isEmpty()){
-
-            //takes the lowest f(n) cost map locations in yetToVisit list
-            //and add current location to the visited list
-            //children location is the possible location for current location to go
-            MapLocation currentLocation = lowestCostSolution(yetToVisit, goal);
-            visited.push(currentLocation);
-            List<MapLocation> childrenLocations = availableLocation(enemyFootmanLoc,currentLocation,MIN_Y,MIN_X,MAX_Y,MAX_X,resourceLocations);
-
-            //we check every children location
-            //if theh location is the goal, we terminate the loop
-            //if the children location isn't in the yetToVisit, we add it into yetToVisit
-            //if the children location is already in yetToVisit,
-            //and that path to this children location has higher g(n) cost,
-            //we reconnect this location's cameFrom to current location
-            for (MapLocation location: childrenLocations){
-                if (location.equals(goal)) {
-                    yetToVisit.clear();
-                    break;
-                }
-                if (visited.contains(location))
-                    continue;
-                if (!yetToVisit.contains(location))
-                    yetToVisit.add(location);
-                else
-                    if (location.cost < yetToVisit.stream()
-                            .filter(loc -> loc.equals(location))
-                            .collect(Collectors.toList())
-                            .get(0).cost)
-                        yetToVisit.stream()
-                                .filter(loc -> loc.equals(location))
-                                .collect(Collectors.toList())
-                                .get(0).cameFrom = currentLocation;
+        int blocker = enemyFootmanLoc == null ? -1 : enemyFootmanLoc.y * xExtent + enemyFootmanLoc.x;
+        int startCell = start.y * xExtent + start.x;
+        int goalCell = goal.y * xExtent + goal.x;
+
+        //an enemy footman going back and forth keeps asking for the same plans, so try the cache first
+        int[] cells = pathCache.get(startCell, goalCell, blocker, obstacles);
+        if (cells == null) {
+            //the planner keeps its arrays between calls, the incremental one also keeps its search and only repairs it
+            cells = planner.search(startCell, goalCell, obstacles, blocker);
+            totalPlans++;
+            totalExpandedNodes += planner.getExpandedNodes();
+            if (cells == null) {
+                System.out.println("there's no way to get to the town hall");
+                return null;
             }
-            //after every children is checked, remove the currentlocation from yetToVisit
-            yetToVisit.remove(currentLocation);
+            //a partial path only covers the start of the route, so it isn't worth keeping for later
+            if (planner.isPartial())
+                return new GridPath(cells, xExtent * yExtent, true);
+            pathCache.put(startCell, goalCell, blocker, cells);
         }
-
-        MapLocation resultPush = visited.peek();
-        if (hCost(resultPush.x, goal.x, resultPush.y, goal.y) > LEAST_DISTANCE_UNIT) {
-            System.out.println("there's no way to get to the town hall");
-            return null;
-        }
-        while (!resultPush.equals(start)){
-            result.push(resultPush);
-            resultPush = resultPush.cameFrom;
-        }
-
-        return result;
-
+        return new GridPath(cells, xExtent * yExtent);
     }
 
-    //this method simply recieve some MapLocation and return the one with the lowest f(n) = g(n) + h(n) cost
-    private MapLocation lowestCostSolution(Collection<MapLocation> list, MapLocation goal) {
-        MapLocation result = new MapLocation(Integer.MAX_VALUE, Integer.MIN_VALUE, null, Double.MAX_VALUE);
-        for (MapLocation location: list) {
-            if (hCost(location.x, goal.x, location.y, goal.y) + location.cost < hCost(result.x, goal.x, result.y, goal.y) + result.cost)
-                result = location;
-        }
-
-        return result;
-    }
-
-
     //methods for debugging purpose
     private void debugPosition(MapLocation tested){
         /*for (MapLocation location: tested) {
@@ -454,73 +488,16 @@ public class AstarAgent extends Agent {
         System.out.println("x: " + tested.x + "," + "y: " +tested.y);
     }
 
-    private void debugStack (Stack<MapLocation> stack){
-        while (!stack.isEmpty()){
-            MapLocation print = stack.pop();
-            System.out.println("x: " + print.x + "," + "y: " +print.y);
+    private void debugPath (GridPath path, int xExtent){
+        while (!path.isEmpty()){
+            int print = path.pop();
+            System.out.println("x: " + print % xExtent + "," + "y: " + print / xExtent);
         }
     }
-    private void debugList(Collection<MapLocation> tested){
-        for (MapLocation location: tested) {
-            System.out.print("start..." + "x: " + location.x + "," + "y: " +location.y + "came from: ");
-            if(location.cameFrom != null) {
-                debugPosition(location.cameFrom);
-            }
-        }
-    }
-
-    //this method return a list of Maplocations that a given state can go
-    private List<MapLocation> availableLocation (MapLocation enemyFootmanLoc, MapLocation currentLocation, int MIN_Y, int MIN_X, int MAX_Y, int MAX_X, Set<MapLocation> resourceLocations) {
-        List<MapLocation> result = new ArrayList<>();
-        int enemyX = Integer.MIN_VALUE;
-        int enemyY = Integer.MIN_VALUE;
-
-        //try and catch to make sure it works on the map without a blocker agent
-        try {
-            enemyX = enemyFootmanLoc.x;
-            enemyY = enemyFootmanLoc.y;
-        }
-
-        catch (NullPointerException e){
-            System.out.println("this map doesn't have a enemy footman");
-        }
-
-        //what this loop does is it testify the 9 locations (3x3), centered on the current location, and it checks:
-        //1. if this location is not the current locaiton
-        //2. if this location is within the bound of the map
-        //3. if this location is not a resource location
-        //4. if this location is not enemy footman location
-        //this is kinda ugly coding, so Ill try to improve it later on
-        for (int x = -1; x < 2; x++) {
-            for (int y = -1; y < 2; y++) {
-                final int temp_x = x;
-                final int temp_y = y;
-                if (!(x == 0 && y == 0)
-                        && (currentLocation.y+y) >= MIN_Y
-                        && (currentLocation.y+y) <= MAX_Y
-                        && (currentLocation.x+x) >= MIN_X
-                        && (currentLocation.x+x) <= MAX_X
-                        && !(resourceLocations.stream().anyMatch(location -> (currentLocation.x+temp_x == location.x && currentLocation.y+temp_y == location.y)))
-                        && !(currentLocation.x+x == enemyX && currentLocation.y+y == enemyY)) {
-
-                    //after the conditions are all satisfied, create the Maplocation that has currentLocation as its cameFrom,
-                    //and cost of currentlocation.cost + 1
-                    result.add(new MapLocation(currentLocation.x+x, currentLocation.y+y, currentLocation, currentLocation.cost + 1));
-                }
-            }
-        }
-        return result;
-    }
-
-    private double hCost(int startX, int endX, int startY, int endY){
-        //this is the heuristic we use for the aster search which is the distance of the straight line between two point.
-        return Math.hypot(Math.abs(startX - endX), Math.abs(startY - endY));
-    }
-
 
     @Override
     public int hashCode() {
-        return Objects.hash(path, footmanID, townhallID, enemyFootmanID, nextLoc, totalPlanTime, totalExecutionTime);
+        return Objects.hash(path, footmanID, townhallID, enemyFootmanID, nextCell, totalPlanTime, totalExecutionTime);
     }
 
     /**
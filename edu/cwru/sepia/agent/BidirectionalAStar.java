@@ -0,0 +1,179 @@
+package edu.cwru.sepia.agent;
+
+import java.util.Arrays;
+
+/**
+ * Bidirectional A* over the footman's grid. One search grows forward from the footman and the other grows
+ * backward from every free cell next to the townhall, each with its own heap, g scores, parents and closed set.
+ * Whenever one side reaches a cell the other side has already reached, the combined length is a candidate path;
+ * the search stops once neither open list can beat the best candidate.
+ */
+public class BidirectionalAStar implements GridPlanner {
+
+    private final int xExtent;
+    private final int yExtent;
+    private final Heuristic heuristic;
+
+    private final IndexedMinHeap forwardOpen;
+    private final boolean[] forwardClosed;
+    private final int[] forwardG;
+    private final int[] forwardCameFrom;
+
+    private final IndexedMinHeap backwardOpen;
+    private final boolean[] backwardClosed;
+    private final int[] backwardG;
+    private final int[] backwardCameFrom;
+
+    private int expandedNodes;
+
+    //the current search, so the expansion code doesn't have to pass them around
+    private OccupancyBitmap obstacles;
+    private int goal;
+    private int blocker;
+    private int startX;
+    private int startY;
+    private int bestLength;
+    private int meetingCell;
+
+    public BidirectionalAStar(int xExtent, int yExtent, Heuristic heuristic) {
+        this.xExtent = xExtent;
+        this.yExtent = yExtent;
+        this.heuristic = heuristic;
+        int cells = xExtent * yExtent;
+        forwardOpen = new IndexedMinHeap(cells);
+        forwardClosed = new boolean[cells];
+        forwardG = new int[cells];
+        forwardCameFrom = new int[cells];
+        backwardOpen = new IndexedMinHeap(cells);
+        backwardClosed = new boolean[cells];
+        backwardG = new int[cells];
+        backwardCameFrom = new int[cells];
+    }
+
+    @Override
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    @Override
+    public int[] search(int start, int goal, OccupancyBitmap obstacles, int blocker) {
+        this.obstacles = obstacles;
+        this.goal = goal;
+        this.blocker = blocker;
+        this.startX = start % xExtent;
+        this.startY = start / xExtent;
+        bestLength = Integer.MAX_VALUE;
+        meetingCell = -1;
+        expandedNodes = 0;
+
+        Arrays.fill(forwardClosed, false);
+        Arrays.fill(forwardG, Integer.MAX_VALUE);
+        Arrays.fill(backwardClosed, false);
+        Arrays.fill(backwardG, Integer.MAX_VALUE);
+        forwardOpen.clear();
+        backwardOpen.clear();
+
+        int goalX = goal % xExtent;
+        int goalY = goal / xExtent;
+        if (Math.abs(startX - goalX) <= 1 && Math.abs(startY - goalY) <= 1)
+            return new int[0];
+
+        forwardG[start] = 0;
+        forwardCameFrom[start] = -1;
+        forwardOpen.push(start, Heuristic.priority(0, toGoal(startX, startY)));
+
+        //the backward search starts from the whole goal region at once
+        for (int y = Math.max(0, goalY - 1); y <= Math.min(yExtent - 1, goalY + 1); y++) {
+            for (int x = Math.max(0, goalX - 1); x <= Math.min(xExtent - 1, goalX + 1); x++) {
+                int cell = y * xExtent + x;
+                if (isFree(cell)) {
+                    backwardG[cell] = 0;
+                    backwardCameFrom[cell] = -1;
+                    backwardOpen.push(cell, Heuristic.priority(0, toStart(x, y)));
+                }
+            }
+        }
+
+        while (!forwardOpen.isEmpty() && !backwardOpen.isEmpty()) {
+            //with consistent heuristics nothing left in either open list can lead to a shorter path than this
+            long bound = (long) bestLength * Heuristic.STEP_COST;
+            if (bestLength != Integer.MAX_VALUE
+                    && (Heuristic.cost(forwardOpen.peekKey()) >= bound || Heuristic.cost(backwardOpen.peekKey()) >= bound))
+                break;
+
+            //grow whichever side has the smaller frontier
+            if (forwardOpen.size() <= backwardOpen.size())
+                expand(forwardOpen.poll(), true);
+            else
+                expand(backwardOpen.poll(), false);
+        }
+
+        if (meetingCell == -1)
+            return null;
+        return buildPath();
+    }
+
+    private void expand(int current, boolean forward) {
+        boolean[] closed = forward ? forwardClosed : backwardClosed;
+        int[] g = forward ? forwardG : backwardG;
+        int[] cameFrom = forward ? forwardCameFrom : backwardCameFrom;
+        int[] otherG = forward ? backwardG : forwardG;
+        IndexedMinHeap openList = forward ? forwardOpen : backwardOpen;
+
+        closed[current] = true;
+        expandedNodes++;
+
+        int currentX = current % xExtent;
+        int currentY = current / xExtent;
+        int nextG = g[current] + 1;
+        for (int y = Math.max(0, currentY - 1); y <= Math.min(yExtent - 1, currentY + 1); y++) {
+            for (int x = Math.max(0, currentX - 1); x <= Math.min(xExtent - 1, currentX + 1); x++) {
+                int neighbor = y * xExtent + x;
+                if (neighbor == current || closed[neighbor] || !isFree(neighbor))
+                    continue;
+                if (nextG < g[neighbor]) {
+                    g[neighbor] = nextG;
+                    cameFrom[neighbor] = current;
+                    int h = forward ? toGoal(x, y) : toStart(x, y);
+                    openList.push(neighbor, Heuristic.priority(nextG, h));
+                }
+                //the other side got here too, so there is a whole path through this cell
+                if (otherG[neighbor] != Integer.MAX_VALUE && g[neighbor] + otherG[neighbor] < bestLength) {
+                    bestLength = g[neighbor] + otherG[neighbor];
+                    meetingCell = neighbor;
+                }
+            }
+        }
+    }
+
+    //forward parents from the footman up to the meeting cell, then backward parents down to the goal region.
+    //if the backward side reached the footman itself the forward part is empty
+    private int[] buildPath() {
+        int[] path = new int[bestLength];
+        int index = forwardG[meetingCell];
+        int cell = meetingCell;
+        for (int i = index - 1; i >= 0; i--) {
+            path[i] = cell;
+            cell = forwardCameFrom[cell];
+        }
+        cell = backwardCameFrom[meetingCell];
+        while (cell != -1) {
+            path[index++] = cell;
+            cell = backwardCameFrom[cell];
+        }
+        return path;
+    }
+
+    private boolean isFree(int cell) {
+        return cell != goal && cell != blocker && !obstacles.isBlocked(cell);
+    }
+
+    //the goal region is one step short of the townhall, so the estimate to it is one step less
+    private int toGoal(int x, int y) {
+        return Math.max(0, heuristic.estimate(x, y, goal % xExtent, goal / xExtent) - Heuristic.STEP_COST);
+    }
+
+    private int toStart(int x, int y) {
+        return heuristic.estimate(x, y, startX, startY);
+    }
+}
@@ -0,0 +1,212 @@
+package edu.cwru.sepia.agent;
+
+import java.util.Arrays;
+
+/**
+ * D* Lite over the footman's grid. The search runs backwards from the cells next to the townhall,
+ * so when the footman walks along its path or the enemy footman steps somewhere else only the
+ * g/rhs values around the changed cells are repaired instead of searching the whole map again.
+ *
+ * The trees and the townhall are fixed for the lifetime of the search, if either changes the
+ * planner starts over.
+ */
+public class DStarLite implements GridPlanner {
+
+    //big enough to mean unreachable, small enough that adding a heuristic and km cannot overflow
+    private static final int INFINITY = Integer.MAX_VALUE / 4;
+
+    private final int xExtent;
+    private final int yExtent;
+    private final IndexedMinHeap openList;
+    private final int[] g;
+    private final int[] rhs;
+    private final Heuristic heuristic;
+    private int expandedNodes;
+
+    //what the current g/rhs values were computed against
+    private OccupancyBitmap obstacles;
+    private int goal = -1;
+    private int blocker = -1;
+    private int lastStart = -1;
+    private long km;
+
+    public DStarLite(int xExtent, int yExtent, Heuristic heuristic) {
+        this.xExtent = xExtent;
+        this.yExtent = yExtent;
+        this.heuristic = heuristic;
+        int cells = xExtent * yExtent;
+        openList = new IndexedMinHeap(cells);
+        g = new int[cells];
+        rhs = new int[cells];
+    }
+
+    //for the incremental planner this counts only the cells the last repair touched
+    @Override
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    @Override
+    public int[] search(int start, int goal, OccupancyBitmap obstacles, int blocker) {
+        if (goal != this.goal || obstacles != this.obstacles) {
+            initialize(start, goal, obstacles, blocker);
+        }
+        else {
+            //the footman moved, so every key in the open list is now off by at most this much
+            if (start != lastStart) {
+                km += hCost(lastStart, start);
+                lastStart = start;
+            }
+            //only the cells the enemy footman left and entered have changed edge costs
+            if (blocker != this.blocker) {
+                int oldBlocker = this.blocker;
+                this.blocker = blocker;
+                if (oldBlocker != -1)
+                    updateAround(oldBlocker);
+                if (blocker != -1)
+                    updateAround(blocker);
+            }
+        }
+
+        expandedNodes = 0;
+        computeShortestPath(start);
+
+        if (g[start] >= INFINITY)
+            return null;
+        return buildPath(start);
+    }
+
+    private void initialize(int start, int goal, OccupancyBitmap obstacles, int blocker) {
+        this.goal = goal;
+        this.obstacles = obstacles;
+        this.blocker = blocker;
+        this.lastStart = start;
+        km = 0;
+        openList.clear();
+        Arrays.fill(g, INFINITY);
+        Arrays.fill(rhs, INFINITY);
+
+        //every free cell next to the townhall is a goal of the backwards search
+        int goalX = goal % xExtent;
+        int goalY = goal / xExtent;
+        for (int y = Math.max(0, goalY - 1); y <= Math.min(yExtent - 1, goalY + 1); y++) {
+            for (int x = Math.max(0, goalX - 1); x <= Math.min(xExtent - 1, goalX + 1); x++) {
+                int cell = y * xExtent + x;
+                if (isFree(cell)) {
+                    rhs[cell] = 0;
+                    openList.push(cell, calculateKey(cell));
+                }
+            }
+        }
+    }
+
+    private void computeShortestPath(int start) {
+        while (!openList.isEmpty()
+                && (openList.peekKey() < calculateKey(start) || rhs[start] != g[start])) {
+            int current = openList.peek();
+            expandedNodes++;
+            long oldKey = openList.peekKey();
+            long newKey = calculateKey(current);
+            if (oldKey < newKey) {
+                openList.push(current, newKey);
+            }
+            else if (g[current] > rhs[current]) {
+                g[current] = rhs[current];
+                openList.remove(current);
+                updateNeighbors(current);
+            }
+            else {
+                g[current] = INFINITY;
+                updateVertex(current);
+                updateNeighbors(current);
+            }
+        }
+    }
+
+    //recomputes rhs of a cell from its neighbors and puts it in the open list if it became inconsistent
+    private void updateVertex(int cell) {
+        if (!isFree(cell))
+            rhs[cell] = INFINITY;
+        else
+            rhs[cell] = isNextToGoal(cell) ? 0 : lowestNeighborCost(cell);
+        if (g[cell] != rhs[cell])
+            openList.push(cell, calculateKey(cell));
+        else
+            openList.remove(cell);
+    }
+
+    private void updateAround(int cell) {
+        updateVertex(cell);
+        updateNeighbors(cell);
+    }
+
+    private void updateNeighbors(int cell) {
+        int cellX = cell % xExtent;
+        int cellY = cell / xExtent;
+        for (int y = Math.max(0, cellY - 1); y <= Math.min(yExtent - 1, cellY + 1); y++) {
+            for (int x = Math.max(0, cellX - 1); x <= Math.min(xExtent - 1, cellX + 1); x++) {
+                int neighbor = y * xExtent + x;
+                if (neighbor != cell)
+                    updateVertex(neighbor);
+            }
+        }
+    }
+
+    private int lowestNeighborCost(int cell) {
+        int best = INFINITY;
+        int cellX = cell % xExtent;
+        int cellY = cell / xExtent;
+        for (int y = Math.max(0, cellY - 1); y <= Math.min(yExtent - 1, cellY + 1); y++) {
+            for (int x = Math.max(0, cellX - 1); x <= Math.min(xExtent - 1, cellX + 1); x++) {
+                int neighbor = y * xExtent + x;
+                if (neighbor != cell && isFree(neighbor) && g[neighbor] + 1 < best)
+                    best = g[neighbor] + 1;
+            }
+        }
+        return best;
+    }
+
+    //follows the lowest g neighbor down from the start until it reaches a cell next to the townhall
+    private int[] buildPath(int start) {
+        int[] path = new int[g[start]];
+        int current = start;
+        for (int i = 0; i < path.length; i++) {
+            int next = -1;
+            int cellX = current % xExtent;
+            int cellY = current / xExtent;
+            for (int y = Math.max(0, cellY - 1); y <= Math.min(yExtent - 1, cellY + 1); y++) {
+                for (int x = Math.max(0, cellX - 1); x <= Math.min(xExtent - 1, cellX + 1); x++) {
+                    int neighbor = y * xExtent + x;
+                    if (neighbor != current && isFree(neighbor) && (next == -1 || g[neighbor] < g[next]))
+                        next = neighbor;
+                }
+            }
+            if (next == -1 || g[next] >= g[current])
+                return null;
+            path[i] = next;
+            current = next;
+        }
+        return path;
+    }
+
+    //keys are [min(g, rhs) + h + km; min(g, rhs)] packed into one long, the first part in heuristic fixed point
+    private long calculateKey(int cell) {
+        int minCost = Math.min(g[cell], rhs[cell]);
+        if (minCost >= INFINITY)
+            return Long.MAX_VALUE;
+        long first = (long) minCost * Heuristic.STEP_COST + hCost(lastStart, cell) + km;
+        return (first << 24) | minCost;
+    }
+
+    private boolean isFree(int cell) {
+        return cell != goal && cell != blocker && !obstacles.isBlocked(cell);
+    }
+
+    private boolean isNextToGoal(int cell) {
+        return Math.abs(cell % xExtent - goal % xExtent) <= 1 && Math.abs(cell / xExtent - goal / xExtent) <= 1;
+    }
+
+    private int hCost(int from, int to) {
+        return heuristic.estimate(from % xExtent, from / xExtent, to % xExtent, to / xExtent);
+    }
+}
@@ -0,0 +1,111 @@
+package edu.cwru.sepia.agent;
+
+import java.util.Arrays;
+
+/**
+ * A* search over a dense xExtent x yExtent grid where every cell is addressed by its index y * xExtent + x.
+ * The open list is an indexed min heap keyed on f = g + h, the closed list is a boolean per cell and
+ * the g scores and parent links are int arrays, so one instance can be reused for every search on the same map.
+ * Ties on f are broken toward the larger g, see Heuristic.priority.
+ */
+public class GridAStar implements GridPlanner {
+
+    private final int xExtent;
+    private final int yExtent;
+    private final Heuristic heuristic;
+    private final IndexedMinHeap openList;
+    private final boolean[] closed;
+    private final int[] gScore;
+    private final int[] cameFrom;
+    private int expandedNodes;
+
+    public GridAStar(int xExtent, int yExtent, Heuristic heuristic) {
+        this.xExtent = xExtent;
+        this.yExtent = yExtent;
+        this.heuristic = heuristic;
+        int cells = xExtent * yExtent;
+        openList = new IndexedMinHeap(cells);
+        closed = new boolean[cells];
+        gScore = new int[cells];
+        cameFrom = new int[cells];
+    }
+
+    public int getXExtent() {
+        return xExtent;
+    }
+
+    public int getYExtent() {
+        return yExtent;
+    }
+
+    @Override
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    @Override
+    public int[] search(int start, int goal, OccupancyBitmap obstacles, int blocker) {
+        Arrays.fill(closed, false);
+        Arrays.fill(gScore, Integer.MAX_VALUE);
+        openList.clear();
+        expandedNodes = 0;
+
+        int goalX = goal % xExtent;
+        int goalY = goal / xExtent;
+
+        gScore[start] = 0;
+        cameFrom[start] = -1;
+        openList.push(start, fCost(start, goalX, goalY));
+
+        while (!openList.isEmpty()) {
+            int current = openList.poll();
+            closed[current] = true;
+            expandedNodes++;
+
+            //the townhall is never entered, so any cell touching it is the end of the path
+            int currentX = current % xExtent;
+            int currentY = current / xExtent;
+            if (Math.abs(currentX - goalX) <= 1 && Math.abs(currentY - goalY) <= 1)
+                return buildPath(current);
+
+            //the 8 cells around the current one, skipping anything off the map, blocked, the goal itself or already closed
+            int nextG = gScore[current] + 1;
+            for (int dy = -1; dy <= 1; dy++) {
+                int y = currentY + dy;
+                if (y < 0 || y >= yExtent)
+                    continue;
+                for (int dx = -1; dx <= 1; dx++) {
+                    int x = currentX + dx;
+                    if ((dx == 0 && dy == 0) || x < 0 || x >= xExtent)
+                        continue;
+                    int neighbor = y * xExtent + x;
+                    if (neighbor == goal || neighbor == blocker || closed[neighbor] || obstacles.isBlocked(neighbor))
+                        continue;
+                    //a cheaper way into a cell already in the open list just lowers its key
+                    if (nextG < gScore[neighbor]) {
+                        gScore[neighbor] = nextG;
+                        cameFrom[neighbor] = current;
+                        openList.push(neighbor, fCost(neighbor, goalX, goalY));
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    //walks the parent links back from the last cell, the start cell itself is left out
+    private int[] buildPath(int last) {
+        int[] path = new int[gScore[last]];
+        int cell = last;
+        for (int i = path.length - 1; i >= 0; i--) {
+            path[i] = cell;
+            cell = cameFrom[cell];
+        }
+        return path;
+    }
+
+    private long fCost(int cell, int goalX, int goalY) {
+        return Heuristic.priority(gScore[cell], heuristic.estimate(cell % xExtent, cell / xExtent, goalX, goalY));
+    }
+}
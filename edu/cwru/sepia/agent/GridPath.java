@@ -0,0 +1,66 @@
+package edu.cwru.sepia.agent;
+
+/**
+ * A planned path as a packed array of cell indices (y * xExtent + x) with a cursor at the next step.
+ * The cells still ahead of the cursor are also kept in a bitset over the map, so checking whether the
+ * enemy footman is standing on the path is a single bit test instead of a scan.
+ */
+public class GridPath {
+
+    private final int[] cells;
+    private final long[] remaining;
+    private final boolean partial;
+    private int cursor;
+
+    public GridPath(int[] cells, int mapCells) {
+        this(cells, mapCells, false);
+    }
+
+    /**
+     * @param cells Cells to step on in order, as returned by a GridPlanner
+     * @param mapCells Number of cells on the map, xExtent * yExtent
+     * @param partial True if the path stops short of the townhall and has to be continued once it is walked
+     */
+    public GridPath(int[] cells, int mapCells, boolean partial) {
+        this.cells = cells;
+        this.partial = partial;
+        this.remaining = new long[(mapCells + 63) >>> 6];
+        for (int cell : cells) {
+            remaining[cell >>> 6] |= 1L << cell;
+        }
+    }
+
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public boolean isEmpty() {
+        return cursor == cells.length;
+    }
+
+    //number of steps left to take
+    public int size() {
+        return cells.length - cursor;
+    }
+
+    public int peek() {
+        return cells[cursor];
+    }
+
+    //the step this many steps after the next one, peek(0) is the same as peek()
+    public int peek(int ahead) {
+        return cells[cursor + ahead];
+    }
+
+    //this returns the next step and moves the cursor past it
+    public int pop() {
+        int cell = cells[cursor++];
+        remaining[cell >>> 6] &= ~(1L << cell);
+        return cell;
+    }
+
+    //true if the cell is one of the steps not taken yet
+    public boolean contains(int cell) {
+        return cell >= 0 && (remaining[cell >>> 6] & (1L << cell)) != 0;
+    }
+}
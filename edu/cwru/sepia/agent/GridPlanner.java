@@ -0,0 +1,27 @@
+package edu.cwru.sepia.agent;
+
+/**
+ * A path finder over the footman's grid. Cells are addressed by their index y * xExtent + x.
+ * Implementations may keep state between calls, so one planner should be used for one map only.
+ */
+public interface GridPlanner {
+
+    /**
+     * Finds a path from start to a cell next to goal, moving in the 8 directions at a cost of 1 per step.
+     *
+     * @param start Cell index of the footman
+     * @param goal Cell index of the townhall, it is never entered
+     * @param obstacles Cells occupied by trees
+     * @param blocker Cell index of the enemy footman, or -1 if there is none
+     * @return Cells to step on in order, not including start or goal, or null if the goal cannot be reached
+     */
+    int[] search(int start, int goal, OccupancyBitmap obstacles, int blocker);
+
+    //how many nodes the last search took off its open list
+    int getExpandedNodes();
+
+    //true if the last path stops short of the townhall, the planner should be asked again once it has been walked
+    default boolean isPartial() {
+        return false;
+    }
+}
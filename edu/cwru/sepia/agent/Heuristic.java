@@ -0,0 +1,78 @@
+package edu.cwru.sepia.agent;
+
+/**
+ * Distance estimates the planners can use, all in fixed point integers where one step of the footman costs STEP_COST.
+ *
+ * The footman pays 1 for every step, diagonal or not, so CHEBYSHEV is exact on open ground and is the only one of
+ * these that never overestimates. OCTILE and EUCLIDEAN charge more for diagonals than the footman does, so they
+ * expand fewer cells on open maps but can return paths a few steps longer than the shortest one.
+ */
+public enum Heuristic {
+
+    CHEBYSHEV {
+        @Override
+        public int estimate(int dx, int dy) {
+            return Math.max(dx, dy) * STEP_COST;
+        }
+    },
+
+    OCTILE {
+        @Override
+        public int estimate(int dx, int dy) {
+            return Math.max(dx, dy) * STEP_COST + Math.min(dx, dy) * DIAGONAL_EXTRA;
+        }
+    },
+
+    EUCLIDEAN {
+        @Override
+        public int estimate(int dx, int dy) {
+            return (int) squareRoot(((long) dx * dx + (long) dy * dy) * STEP_COST * STEP_COST);
+        }
+    };
+
+    //cost of one step in fixed point
+    public static final int STEP_COST = 1024;
+
+    //(squareroot of 2 - 1) * STEP_COST, what a diagonal costs on top of a straight step when diagonals are longer
+    private static final int DIAGONAL_EXTRA = 424;
+
+    //the open list key keeps g below this many bits, so paths can be up to 4 million steps long
+    private static final int TIE_BITS = 22;
+    private static final long TIE_MASK = (1L << TIE_BITS) - 1;
+
+    /**
+     * @param dx Absolute x distance in cells
+     * @param dy Absolute y distance in cells
+     * @return Estimated cost in STEP_COST units
+     */
+    public abstract int estimate(int dx, int dy);
+
+    public int estimate(int fromX, int fromY, int toX, int toY) {
+        return estimate(Math.abs(fromX - toX), Math.abs(fromY - toY));
+    }
+
+    //orders an open list by f = g + h, and among equal f prefers the larger g (the cell closest to the goal),
+    //so A* runs down one of many equally good paths instead of widening across all of them
+    public static long priority(int g, int h) {
+        long f = (long) g * STEP_COST + h;
+        return (f << TIE_BITS) | (TIE_MASK - g);
+    }
+
+    //the f part of a key made by priority, in STEP_COST units
+    public static long cost(long priority) {
+        return priority >>> TIE_BITS;
+    }
+
+    //floor of the square root, using only integer arithmetic
+    private static long squareRoot(long value) {
+        if (value < 2)
+            return value;
+        long root = (long) 1 << ((64 - Long.numberOfLeadingZeros(value) + 1) / 2);
+        while (true) {
+            long next = (root + value / root) / 2;
+            if (next >= root)
+                return root;
+            root = next;
+        }
+    }
+}
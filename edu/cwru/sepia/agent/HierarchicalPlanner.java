@@ -0,0 +1,498 @@
+package edu.cwru.sepia.agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HPA* style planner. The map is cut into CLUSTER_SIZE x CLUSTER_SIZE clusters, and every free stretch of cluster
+ * border gets one or two entrances. Entrances on either side of a border are joined by a step, and entrances of the
+ * same cluster are joined by their shortest distance inside that cluster. Searching that small graph gives the route
+ * from cluster to cluster, and only the first REFINED_EDGES legs of it are turned into real steps. The rest is
+ * refined when the footman gets to the end of what was handed back, see isPartial.
+ *
+ * The entrances only depend on the trees and the townhall, so they are built once. The enemy footman only makes
+ * the clusters it left and entered recompute their inside distances. If the cluster graph cannot find a route
+ * (a border crossing that only works diagonally, for example) the planner falls back to a plain A* search.
+ */
+public class HierarchicalPlanner implements GridPlanner {
+
+    private static final int CLUSTER_SIZE = 10;
+
+    //how many legs of the cluster route are turned into steps per call
+    private static final int REFINED_EDGES = 4;
+
+    //entrance stretches at least this long get an entrance at each end instead of one in the middle
+    private static final int LONG_ENTRANCE = 6;
+
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    //a cell on a cluster border that the cluster graph uses as a node
+    private static class Entrance {
+        final int id;
+        final int cell;
+        final int cluster;
+        final List<Entrance> crossings = new ArrayList<>();
+        int[] inside = new int[0];
+        int[] insideCost = new int[0];
+
+        Entrance(int id, int cell, int cluster) {
+            this.id = id;
+            this.cell = cell;
+            this.cluster = cluster;
+        }
+    }
+
+    private final int xExtent;
+    private final int yExtent;
+    private final int clustersX;
+    private final int clustersY;
+    private final Heuristic heuristic;
+    private int expandedNodes;
+    private boolean partial;
+
+    //the cluster graph and what it was built against
+    private OccupancyBitmap obstacles;
+    private int goal = -1;
+    private int blocker = -1;
+    private List<Entrance> entrances;
+    private List<List<Entrance>> clusterEntrances;
+    private int[] entranceOfCell;
+
+    //flood fill scratch space, a cell counts as visited only if its stamp is the current one
+    private final int[] visitStamp;
+    private final int[] distance;
+    private final int[] parent;
+    private final int[] queue;
+    private int stamp;
+
+    //the cluster route of the last search, and how far along it has been refined
+    private int[] route;
+    private int refinedEdges;
+    private int refinedUpTo = -1;
+
+    private GridAStar fallback;
+
+    public HierarchicalPlanner(int xExtent, int yExtent, Heuristic heuristic) {
+        this.xExtent = xExtent;
+        this.yExtent = yExtent;
+        this.heuristic = heuristic;
+        clustersX = (xExtent + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        clustersY = (yExtent + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        int cells = xExtent * yExtent;
+        visitStamp = new int[cells];
+        distance = new int[cells];
+        parent = new int[cells];
+        queue = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    }
+
+    @Override
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    @Override
+    public boolean isPartial() {
+        return partial;
+    }
+
+    @Override
+    public int[] search(int start, int goal, OccupancyBitmap obstacles, int blocker) {
+        expandedNodes = 0;
+        partial = false;
+
+        if (obstacles != this.obstacles || goal != this.goal) {
+            this.obstacles = obstacles;
+            this.goal = goal;
+            this.blocker = blocker;
+            buildGraph();
+            route = null;
+        }
+        else if (blocker != this.blocker) {
+            //the enemy footman only changes distances inside the clusters it left and entered
+            int oldBlocker = this.blocker;
+            this.blocker = blocker;
+            if (oldBlocker != -1)
+                connectCluster(clusterOf(oldBlocker));
+            if (blocker != -1 && (oldBlocker == -1 || clusterOf(blocker) != clusterOf(oldBlocker)))
+                connectCluster(clusterOf(blocker));
+            route = null;
+        }
+
+        if (isNextToGoal(start))
+            return new int[0];
+
+        //carry on down the last route if the footman is where the last refined piece ended
+        if (route == null || start != refinedUpTo) {
+            route = findRoute(start);
+            refinedEdges = 0;
+        }
+        if (route == null)
+            return searchFallback(start);
+
+        int[] cells = refine(start);
+        if (cells == null)
+            return searchFallback(start);
+        return cells;
+    }
+
+    private int[] searchFallback(int start) {
+        if (fallback == null)
+            fallback = new GridAStar(xExtent, yExtent, heuristic);
+        route = null;
+        partial = false;
+        int[] cells = fallback.search(start, goal, obstacles, blocker);
+        expandedNodes += fallback.getExpandedNodes();
+        return cells;
+    }
+
+    private void buildGraph() {
+        entrances = new ArrayList<>();
+        clusterEntrances = new ArrayList<>();
+        for (int i = 0; i < clustersX * clustersY; i++) {
+            clusterEntrances.add(new ArrayList<>());
+        }
+        entranceOfCell = new int[xExtent * yExtent];
+        Arrays.fill(entranceOfCell, -1);
+
+        //vertical borders, the pair is (x - 1, y) | (x, y)
+        for (int x = CLUSTER_SIZE; x < xExtent; x += CLUSTER_SIZE) {
+            for (int top = 0; top < yExtent; top += CLUSTER_SIZE) {
+                int bottom = Math.min(yExtent, top + CLUSTER_SIZE);
+                int runStart = -1;
+                for (int y = top; y <= bottom; y++) {
+                    boolean open = y < bottom && isStaticFree(y * xExtent + x - 1) && isStaticFree(y * xExtent + x);
+                    if (open && runStart == -1)
+                        runStart = y;
+                    if (!open && runStart != -1) {
+                        for (int entranceY : entrancePositions(runStart, y - 1))
+                            addCrossing(entranceY * xExtent + x - 1, entranceY * xExtent + x);
+                        runStart = -1;
+                    }
+                }
+            }
+        }
+
+        //horizontal borders, the pair is (x, y - 1) | (x, y)
+        for (int y = CLUSTER_SIZE; y < yExtent; y += CLUSTER_SIZE) {
+            for (int left = 0; left < xExtent; left += CLUSTER_SIZE) {
+                int right = Math.min(xExtent, left + CLUSTER_SIZE);
+                int runStart = -1;
+                for (int x = left; x <= right; x++) {
+                    boolean open = x < right && isStaticFree((y - 1) * xExtent + x) && isStaticFree(y * xExtent + x);
+                    if (open && runStart == -1)
+                        runStart = x;
+                    if (!open && runStart != -1) {
+                        for (int entranceX : entrancePositions(runStart, x - 1))
+                            addCrossing((y - 1) * xExtent + entranceX, y * xExtent + entranceX);
+                        runStart = -1;
+                    }
+                }
+            }
+        }
+
+        for (int cluster = 0; cluster < clusterEntrances.size(); cluster++) {
+            connectCluster(cluster);
+        }
+    }
+
+    private int[] entrancePositions(int first, int last) {
+        if (last - first + 1 >= LONG_ENTRANCE)
+            return new int[]{first, last};
+        return new int[]{(first + last) / 2};
+    }
+
+    private void addCrossing(int from, int to) {
+        Entrance a = entranceAt(from);
+        Entrance b = entranceAt(to);
+        a.crossings.add(b);
+        b.crossings.add(a);
+    }
+
+    private Entrance entranceAt(int cell) {
+        if (entranceOfCell[cell] != -1)
+            return entrances.get(entranceOfCell[cell]);
+        Entrance entrance = new Entrance(entrances.size(), cell, clusterOf(cell));
+        entrances.add(entrance);
+        clusterEntrances.get(entrance.cluster).add(entrance);
+        entranceOfCell[cell] = entrance.id;
+        return entrance;
+    }
+
+    //recomputes the distances between every pair of entrances of one cluster
+    private void connectCluster(int cluster) {
+        List<Entrance> members = clusterEntrances.get(cluster);
+        for (Entrance entrance : members) {
+            int count = 0;
+            int[] inside = new int[members.size()];
+            int[] insideCost = new int[members.size()];
+            if (isFree(entrance.cell)) {
+                flood(entrance.cell, cluster);
+                for (Entrance other : members) {
+                    if (other != entrance && isReached(other.cell)) {
+                        inside[count] = other.id;
+                        insideCost[count] = distance[other.cell];
+                        count++;
+                    }
+                }
+            }
+            entrance.inside = Arrays.copyOf(inside, count);
+            entrance.insideCost = Arrays.copyOf(insideCost, count);
+        }
+    }
+
+    //A* over the entrances, the start is node entrances.size() and the goal region is the node after it
+    private int[] findRoute(int start) {
+        int startNode = entrances.size();
+        int goalNode = startNode + 1;
+        int nodes = goalNode + 1;
+
+        //how far each entrance of the goal clusters is from the goal region, measured inside its cluster
+        int[] goalCost = new int[nodes];
+        Arrays.fill(goalCost, INFINITY);
+        int goalX = goal % xExtent;
+        int goalY = goal / xExtent;
+        for (int cluster : goalClusters(goalX, goalY)) {
+            floodGoalRegion(cluster);
+            for (Entrance entrance : clusterEntrances.get(cluster)) {
+                if (isReached(entrance.cell))
+                    goalCost[entrance.id] = distance[entrance.cell];
+            }
+        }
+
+        //the start joins the graph through the entrances of its own cluster, or straight to the goal region
+        int startCluster = clusterOf(start);
+        flood(start, startCluster);
+        List<Entrance> startMembers = clusterEntrances.get(startCluster);
+        int[] startEdges = new int[startMembers.size()];
+        int[] startCosts = new int[startMembers.size()];
+        int startEdgeCount = 0;
+        for (Entrance entrance : startMembers) {
+            if (isReached(entrance.cell)) {
+                startEdges[startEdgeCount] = entrance.id;
+                startCosts[startEdgeCount] = distance[entrance.cell];
+                startEdgeCount++;
+            }
+        }
+        int nearestFromStart = nearestGoalRegionCell();
+        goalCost[startNode] = nearestFromStart == -1 ? INFINITY : distance[nearestFromStart];
+
+        IndexedMinHeap openList = new IndexedMinHeap(nodes);
+        int[] g = new int[nodes];
+        int[] cameFrom = new int[nodes];
+        boolean[] closed = new boolean[nodes];
+        Arrays.fill(g, INFINITY);
+        g[startNode] = 0;
+        cameFrom[startNode] = -1;
+        openList.push(startNode, Heuristic.priority(0, toGoal(start)));
+
+        while (!openList.isEmpty()) {
+            int current = openList.poll();
+            closed[current] = true;
+            expandedNodes++;
+            if (current == goalNode)
+                return buildRoute(cameFrom, goalNode);
+
+            if (goalCost[current] < INFINITY)
+                relax(openList, g, cameFrom, closed, current, goalNode, goalCost[current], 0);
+
+            if (current == startNode) {
+                for (int i = 0; i < startEdgeCount; i++)
+                    relax(openList, g, cameFrom, closed, current, startEdges[i], startCosts[i], toGoal(entrances.get(startEdges[i]).cell));
+                continue;
+            }
+
+            Entrance entrance = entrances.get(current);
+            for (int i = 0; i < entrance.inside.length; i++) {
+                Entrance other = entrances.get(entrance.inside[i]);
+                relax(openList, g, cameFrom, closed, current, other.id, entrance.insideCost[i], toGoal(other.cell));
+            }
+            for (Entrance other : entrance.crossings) {
+                if (isFree(entrance.cell) && isFree(other.cell))
+                    relax(openList, g, cameFrom, closed, current, other.id, 1, toGoal(other.cell));
+            }
+        }
+        return null;
+    }
+
+    private void relax(IndexedMinHeap openList, int[] g, int[] cameFrom, boolean[] closed, int from, int to, int cost, int h) {
+        if (closed[to] || g[from] + cost >= g[to])
+            return;
+        g[to] = g[from] + cost;
+        cameFrom[to] = from;
+        openList.push(to, Heuristic.priority(g[to], h));
+    }
+
+    private int[] buildRoute(int[] cameFrom, int goalNode) {
+        int length = 0;
+        for (int node = goalNode; node != -1; node = cameFrom[node])
+            length++;
+        int[] result = new int[length];
+        for (int node = goalNode; node != -1; node = cameFrom[node])
+            result[--length] = node;
+        return result;
+    }
+
+    //turns the next few legs of the route into steps, starting from where the footman is now
+    private int[] refine(int start) {
+        int startNode = entrances.size();
+        int goalNode = startNode + 1;
+        int[] steps = new int[CLUSTER_SIZE * CLUSTER_SIZE * REFINED_EDGES];
+        int count = 0;
+        int current = start;
+        int edges = 0;
+
+        while (refinedEdges < route.length - 1 && edges < REFINED_EDGES) {
+            int to = route[refinedEdges + 1];
+            int target;
+            if (to == goalNode) {
+                flood(current, clusterOf(current));
+                target = nearestGoalRegionCell();
+                if (target == -1)
+                    return null;
+            }
+            else {
+                target = entrances.get(to).cell;
+                //a crossing is a single step over the border, anything else stays inside one cluster
+                if (target != current && clusterOf(target) == clusterOf(current))
+                    flood(current, clusterOf(current));
+            }
+
+            if (target != current) {
+                if (clusterOf(target) != clusterOf(current)) {
+                    steps = ensureCapacity(steps, count + 1);
+                    steps[count++] = target;
+                }
+                else {
+                    if (!isReached(target))
+                        return null;
+                    steps = ensureCapacity(steps, count + distance[target]);
+                    int cell = target;
+                    for (int i = count + distance[target] - 1; i >= count; i--) {
+                        steps[i] = cell;
+                        cell = parent[cell];
+                    }
+                    count += distance[target];
+                }
+            }
+            current = target;
+            refinedEdges++;
+            edges++;
+        }
+
+        refinedUpTo = current;
+        partial = refinedEdges < route.length - 1;
+        return Arrays.copyOf(steps, count);
+    }
+
+    private int[] ensureCapacity(int[] steps, int size) {
+        return size <= steps.length ? steps : Arrays.copyOf(steps, Math.max(size, steps.length * 2));
+    }
+
+    //breadth first search from one cell that never leaves the given cluster
+    private void flood(int source, int cluster) {
+        stamp++;
+        visitStamp[source] = stamp;
+        distance[source] = 0;
+        parent[source] = -1;
+        queue[0] = source;
+        floodFrom(1, cluster);
+    }
+
+    //breadth first search from every free cell next to the townhall that lies in the given cluster
+    private void floodGoalRegion(int cluster) {
+        stamp++;
+        int tail = 0;
+        int goalX = goal % xExtent;
+        int goalY = goal / xExtent;
+        for (int y = Math.max(0, goalY - 1); y <= Math.min(yExtent - 1, goalY + 1); y++) {
+            for (int x = Math.max(0, goalX - 1); x <= Math.min(xExtent - 1, goalX + 1); x++) {
+                int cell = y * xExtent + x;
+                if (isFree(cell) && clusterOf(cell) == cluster) {
+                    visitStamp[cell] = stamp;
+                    distance[cell] = 0;
+                    parent[cell] = -1;
+                    queue[tail++] = cell;
+                }
+            }
+        }
+        floodFrom(tail, cluster);
+    }
+
+    private void floodFrom(int tail, int cluster) {
+        int head = 0;
+        int left = (cluster % clustersX) * CLUSTER_SIZE;
+        int top = (cluster / clustersX) * CLUSTER_SIZE;
+        int right = Math.min(xExtent, left + CLUSTER_SIZE) - 1;
+        int bottom = Math.min(yExtent, top + CLUSTER_SIZE) - 1;
+        while (head < tail) {
+            int current = queue[head++];
+            expandedNodes++;
+            int currentX = current % xExtent;
+            int currentY = current / xExtent;
+            for (int y = Math.max(top, currentY - 1); y <= Math.min(bottom, currentY + 1); y++) {
+                for (int x = Math.max(left, currentX - 1); x <= Math.min(right, currentX + 1); x++) {
+                    int neighbor = y * xExtent + x;
+                    if (visitStamp[neighbor] == stamp || !isFree(neighbor))
+                        continue;
+                    visitStamp[neighbor] = stamp;
+                    distance[neighbor] = distance[current] + 1;
+                    parent[neighbor] = current;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+    }
+
+    //the closest cell next to the townhall reached by the last flood, or -1
+    private int nearestGoalRegionCell() {
+        int best = -1;
+        int goalX = goal % xExtent;
+        int goalY = goal / xExtent;
+        for (int y = Math.max(0, goalY - 1); y <= Math.min(yExtent - 1, goalY + 1); y++) {
+            for (int x = Math.max(0, goalX - 1); x <= Math.min(xExtent - 1, goalX + 1); x++) {
+                int cell = y * xExtent + x;
+                if (cell != goal && isReached(cell) && (best == -1 || distance[cell] < distance[best]))
+                    best = cell;
+            }
+        }
+        return best;
+    }
+
+    private List<Integer> goalClusters(int goalX, int goalY) {
+        List<Integer> clusters = new ArrayList<>();
+        for (int y = Math.max(0, goalY - 1); y <= Math.min(yExtent - 1, goalY + 1); y++) {
+            for (int x = Math.max(0, goalX - 1); x <= Math.min(xExtent - 1, goalX + 1); x++) {
+                int cluster = clusterOf(y * xExtent + x);
+                if (!clusters.contains(cluster))
+                    clusters.add(cluster);
+            }
+        }
+        return clusters;
+    }
+
+    private boolean isReached(int cell) {
+        return visitStamp[cell] == stamp;
+    }
+
+    private int clusterOf(int cell) {
+        return (cell / xExtent / CLUSTER_SIZE) * clustersX + (cell % xExtent) / CLUSTER_SIZE;
+    }
+
+    //free of trees and the townhall, which is all the entrances are built from
+    private boolean isStaticFree(int cell) {
+        return cell != goal && !obstacles.isBlocked(cell);
+    }
+
+    private boolean isFree(int cell) {
+        return cell != blocker && isStaticFree(cell);
+    }
+
+    private boolean isNextToGoal(int cell) {
+        return Math.abs(cell % xExtent - goal % xExtent) <= 1 && Math.abs(cell / xExtent - goal / xExtent) <= 1;
+    }
+
+    private int toGoal(int cell) {
+        return Math.max(0, heuristic.estimate(cell % xExtent, cell / xExtent, goal % xExtent, goal / xExtent) - Heuristic.STEP_COST);
+    }
+}
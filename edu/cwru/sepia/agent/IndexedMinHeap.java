@@ -0,0 +1,140 @@
+package edu.cwru.sepia.agent;
+
+import java.util.Arrays;
+
+/**
+ * A binary min heap over the cells of a grid. Every cell can be in the heap at most once,
+ * and the heap remembers where each cell sits so its key can be changed in O(log n)
+ * instead of searching the whole open list for it.
+ */
+public class IndexedMinHeap {
+
+    //heap holds the cells in heap order, position maps a cell back to its slot in heap (-1 if absent)
+    //key is indexed by cell so it survives while the cell moves around inside the heap
+    private final int[] heap;
+    private final int[] position;
+    private final long[] key;
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        key = new long[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int cell) {
+        return position[cell] != -1;
+    }
+
+    public long getKey(int cell) {
+        return key[cell];
+    }
+
+    //this returns the key of the top cell without removing it, the heap must not be empty
+    public long peekKey() {
+        return key[heap[0]];
+    }
+
+    public int peek() {
+        return heap[0];
+    }
+
+    //this inserts the cell, or moves it to its new place if it is already in the heap
+    public void push(int cell, long newKey) {
+        int index = position[cell];
+        if (index == -1) {
+            index = size++;
+            heap[index] = cell;
+            position[cell] = index;
+            key[cell] = newKey;
+            siftUp(index);
+        }
+        else {
+            long oldKey = key[cell];
+            key[cell] = newKey;
+            if (newKey < oldKey)
+                siftUp(index);
+            else
+                siftDown(index);
+        }
+    }
+
+    //this removes and returns the cell with the lowest key, the heap must not be empty
+    public int poll() {
+        int top = heap[0];
+        removeAt(0);
+        return top;
+    }
+
+    public void remove(int cell) {
+        int index = position[cell];
+        if (index != -1)
+            removeAt(index);
+    }
+
+    //only the cells still in the heap are touched, so clearing is as cheap as the last search was
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void removeAt(int index) {
+        int removed = heap[index];
+        position[removed] = -1;
+        size--;
+        if (index == size)
+            return;
+        int last = heap[size];
+        heap[index] = last;
+        position[last] = index;
+        siftUp(index);
+        siftDown(position[last]);
+    }
+
+    private void siftUp(int index) {
+        int cell = heap[index];
+        long cellKey = key[cell];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            int parentCell = heap[parent];
+            if (key[parentCell] <= cellKey)
+                break;
+            heap[index] = parentCell;
+            position[parentCell] = index;
+            index = parent;
+        }
+        heap[index] = cell;
+        position[cell] = index;
+    }
+
+    private void siftDown(int index) {
+        int cell = heap[index];
+        long cellKey = key[cell];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && key[heap[right]] < key[heap[child]])
+                child = right;
+            int childCell = heap[child];
+            if (cellKey <= key[childCell])
+                break;
+            heap[index] = childCell;
+            position[childCell] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        position[cell] = index;
+    }
+}
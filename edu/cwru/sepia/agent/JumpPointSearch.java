@@ -0,0 +1,199 @@
+package edu.cwru.sepia.agent;
+
+import java.util.Arrays;
+
+/**
+ * Jump Point Search over the footman's grid. Every step costs 1 in all 8 directions, so most of the
+ * neighbors A* would push are just symmetric copies of the same path. Instead of pushing them, a node
+ * keeps walking in its direction until it reaches a cell with a forced neighbor or a cell next to the
+ * townhall, and only those jump points go into the open list.
+ *
+ * The jump points are joined back up into single steps when the path is returned.
+ */
+public class JumpPointSearch implements GridPlanner {
+
+    private final int xExtent;
+    private final int yExtent;
+    private final IndexedMinHeap openList;
+    private final boolean[] closed;
+    private final int[] gScore;
+    private final int[] cameFrom;
+    private final Heuristic heuristic;
+    private int expandedNodes;
+
+    //the goal and obstacles of the current search, so jump can check cells without passing them around
+    private OccupancyBitmap obstacles;
+    private int goal;
+    private int goalX;
+    private int goalY;
+    private int blocker;
+
+    public JumpPointSearch(int xExtent, int yExtent, Heuristic heuristic) {
+        this.xExtent = xExtent;
+        this.yExtent = yExtent;
+        this.heuristic = heuristic;
+        int cells = xExtent * yExtent;
+        openList = new IndexedMinHeap(cells);
+        closed = new boolean[cells];
+        gScore = new int[cells];
+        cameFrom = new int[cells];
+    }
+
+    @Override
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    @Override
+    public int[] search(int start, int goal, OccupancyBitmap obstacles, int blocker) {
+        this.obstacles = obstacles;
+        this.goal = goal;
+        this.goalX = goal % xExtent;
+        this.goalY = goal / xExtent;
+        this.blocker = blocker;
+
+        Arrays.fill(closed, false);
+        Arrays.fill(gScore, Integer.MAX_VALUE);
+        openList.clear();
+        expandedNodes = 0;
+
+        gScore[start] = 0;
+        cameFrom[start] = -1;
+        openList.push(start, fCost(start));
+
+        while (!openList.isEmpty()) {
+            int current = openList.poll();
+            closed[current] = true;
+            expandedNodes++;
+
+            int x = current % xExtent;
+            int y = current / xExtent;
+            if (isNextToGoal(x, y))
+                return buildPath(start, current);
+
+            if (cameFrom[current] == -1) {
+                //the start has no direction yet so all 8 are tried
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if (dx != 0 || dy != 0)
+                            addSuccessor(current, x, y, dx, dy);
+                    }
+                }
+                continue;
+            }
+
+            int parent = cameFrom[current];
+            int dx = Integer.signum(x - parent % xExtent);
+            int dy = Integer.signum(y - parent / xExtent);
+            if (dx != 0 && dy != 0) {
+                //diagonal: keep going straight on either axis or diagonally, plus the corners a wall forces open
+                addSuccessor(current, x, y, dx, 0);
+                addSuccessor(current, x, y, 0, dy);
+                addSuccessor(current, x, y, dx, dy);
+                if (!isWalkable(x - dx, y))
+                    addSuccessor(current, x, y, -dx, dy);
+                if (!isWalkable(x, y - dy))
+                    addSuccessor(current, x, y, dx, -dy);
+            }
+            else if (dx != 0) {
+                addSuccessor(current, x, y, dx, 0);
+                if (!isWalkable(x, y + 1))
+                    addSuccessor(current, x, y, dx, 1);
+                if (!isWalkable(x, y - 1))
+                    addSuccessor(current, x, y, dx, -1);
+            }
+            else {
+                addSuccessor(current, x, y, 0, dy);
+                if (!isWalkable(x + 1, y))
+                    addSuccessor(current, x, y, 1, dy);
+                if (!isWalkable(x - 1, y))
+                    addSuccessor(current, x, y, -1, dy);
+            }
+        }
+
+        return null;
+    }
+
+    private void addSuccessor(int current, int x, int y, int dx, int dy) {
+        int jumpPoint = jump(x, y, dx, dy);
+        if (jumpPoint == -1 || closed[jumpPoint])
+            return;
+        //every step of a jump costs 1, so the cost of the whole jump is the longer of its two sides
+        int distance = Math.max(Math.abs(jumpPoint % xExtent - x), Math.abs(jumpPoint / xExtent - y));
+        int nextG = gScore[current] + distance;
+        if (nextG < gScore[jumpPoint]) {
+            gScore[jumpPoint] = nextG;
+            cameFrom[jumpPoint] = current;
+            openList.push(jumpPoint, fCost(jumpPoint));
+        }
+    }
+
+    //walks from (x, y) in direction (dx, dy) and returns the first jump point, or -1 if it runs into something
+    private int jump(int x, int y, int dx, int dy) {
+        while (true) {
+            x += dx;
+            y += dy;
+            if (!isWalkable(x, y))
+                return -1;
+            if (isNextToGoal(x, y))
+                return y * xExtent + x;
+
+            if (dx != 0 && dy != 0) {
+                if ((!isWalkable(x - dx, y) && isWalkable(x - dx, y + dy))
+                        || (!isWalkable(x, y - dy) && isWalkable(x + dx, y - dy)))
+                    return y * xExtent + x;
+                //a diagonal cell is also a jump point if either straight line out of it finds one
+                if (jump(x, y, dx, 0) != -1 || jump(x, y, 0, dy) != -1)
+                    return y * xExtent + x;
+            }
+            else if (dx != 0) {
+                if ((!isWalkable(x, y + 1) && isWalkable(x + dx, y + 1))
+                        || (!isWalkable(x, y - 1) && isWalkable(x + dx, y - 1)))
+                    return y * xExtent + x;
+            }
+            else {
+                if ((!isWalkable(x + 1, y) && isWalkable(x + 1, y + dy))
+                        || (!isWalkable(x - 1, y) && isWalkable(x - 1, y + dy)))
+                    return y * xExtent + x;
+            }
+        }
+    }
+
+    //fills in every cell between consecutive jump points, each leg is a straight or diagonal line
+    private int[] buildPath(int start, int last) {
+        int[] path = new int[gScore[last]];
+        int index = path.length;
+        int cell = last;
+        while (cell != start) {
+            int parent = cameFrom[cell];
+            int parentX = parent % xExtent;
+            int parentY = parent / xExtent;
+            int x = cell % xExtent;
+            int y = cell / xExtent;
+            int dx = Integer.signum(parentX - x);
+            int dy = Integer.signum(parentY - y);
+            while (x != parentX || y != parentY) {
+                path[--index] = y * xExtent + x;
+                x += dx;
+                y += dy;
+            }
+            cell = parent;
+        }
+        return path;
+    }
+
+    private boolean isWalkable(int x, int y) {
+        if (x < 0 || y < 0 || x >= xExtent || y >= yExtent)
+            return false;
+        int cell = y * xExtent + x;
+        return cell != goal && cell != blocker && !obstacles.isBlocked(cell);
+    }
+
+    private boolean isNextToGoal(int x, int y) {
+        return Math.abs(x - goalX) <= 1 && Math.abs(y - goalY) <= 1;
+    }
+
+    private long fCost(int cell) {
+        return Heuristic.priority(gScore[cell], heuristic.estimate(cell % xExtent, cell / xExtent, goalX, goalY));
+    }
+}
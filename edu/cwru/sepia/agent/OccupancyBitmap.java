@@ -0,0 +1,42 @@
+package edu.cwru.sepia.agent;
+
+/**
+ * One bit per map cell, set where the footman cannot stand (trees).
+ * Cells use the same y * xExtent + x index as the grid searches, so a neighbor check is a single bit test.
+ */
+public class OccupancyBitmap {
+
+    private final int xExtent;
+    private final int yExtent;
+    private final long[] bits;
+
+    public OccupancyBitmap(int xExtent, int yExtent) {
+        this.xExtent = xExtent;
+        this.yExtent = yExtent;
+        this.bits = new long[(xExtent * yExtent + 63) >>> 6];
+    }
+
+    public int getXExtent() {
+        return xExtent;
+    }
+
+    public int getYExtent() {
+        return yExtent;
+    }
+
+    public void set(int x, int y) {
+        set(y * xExtent + x);
+    }
+
+    public void set(int cell) {
+        bits[cell >>> 6] |= 1L << cell;
+    }
+
+    public boolean isBlocked(int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    public boolean isBlocked(int x, int y) {
+        return isBlocked(y * xExtent + x);
+    }
+}
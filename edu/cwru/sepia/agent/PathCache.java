@@ -0,0 +1,87 @@
+package edu.cwru.sepia.agent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of planned paths, keyed by the footman's cell, the townhall's cell and the enemy
+ * footman's cell. When the enemy footman walks back and forth between a few cells the same plans come up over
+ * and over, and this hands them back without searching again.
+ *
+ * Cell indices have to fit in 21 bits (maps up to about 1400 x 1400) for the three of them to pack into one key.
+ * On a bigger map different queries would share keys, so nothing is cached there and every lookup misses.
+ */
+public class PathCache {
+
+    //cells a map can have for every cell index to fit in a key
+    public static final int MAX_CELLS = 1 << 21;
+
+    private final Map<Long, int[]> paths;
+    private final boolean enabled;
+    private int hits;
+    private int misses;
+
+    /**
+     * @param capacity Number of paths kept
+     * @param cells Number of cells of the map the paths are on
+     */
+    public PathCache(int capacity, int cells) {
+        enabled = cells <= MAX_CELLS;
+        //access order makes the iteration order least recently used first, so the eldest entry is the one to drop
+        paths = new LinkedHashMap<Long, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Looks up a path and checks it still only steps on free cells before handing it back.
+     *
+     * @return The cached cells, or null if there is no usable path for this key
+     */
+    public int[] get(int start, int goal, int blocker, OccupancyBitmap obstacles) {
+        if (!enabled) {
+            misses++;
+            return null;
+        }
+        long key = key(start, goal, blocker);
+        int[] cells = paths.get(key);
+        if (cells != null && !isValid(cells, obstacles, blocker)) {
+            paths.remove(key);
+            cells = null;
+        }
+        if (cells == null)
+            misses++;
+        else
+            hits++;
+        return cells;
+    }
+
+    public void put(int start, int goal, int blocker, int[] cells) {
+        if (enabled)
+            paths.put(key(start, goal, blocker), cells);
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    private static boolean isValid(int[] cells, OccupancyBitmap obstacles, int blocker) {
+        for (int cell : cells) {
+            if (cell == blocker || obstacles.isBlocked(cell))
+                return false;
+        }
+        return true;
+    }
+
+    //blocker is shifted up by one so "no enemy footman" (-1) packs as 0
+    private static long key(int start, int goal, int blocker) {
+        return ((long) start << 43) | ((long) goal << 22) | (blocker + 1);
+    }
+}
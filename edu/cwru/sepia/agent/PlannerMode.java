@@ -0,0 +1,49 @@
+package edu.cwru.sepia.agent;
+
+/**
+ * The path finding engines AstarAgent can run, picked by name from the agent arguments.
+ */
+public enum PlannerMode {
+
+    //plain A*, every replan searches from scratch
+    ASTAR {
+        @Override
+        public GridPlanner create(int xExtent, int yExtent, Heuristic heuristic) {
+            return new GridAStar(xExtent, yExtent, heuristic);
+        }
+    },
+
+    //D* Lite, keeps its g/rhs values between turns and only repairs the cells the enemy footman touched
+    INCREMENTAL {
+        @Override
+        public GridPlanner create(int xExtent, int yExtent, Heuristic heuristic) {
+            return new DStarLite(xExtent, yExtent, heuristic);
+        }
+    },
+
+    //jump point search, only pushes the cells where a path can turn
+    JPS {
+        @Override
+        public GridPlanner create(int xExtent, int yExtent, Heuristic heuristic) {
+            return new JumpPointSearch(xExtent, yExtent, heuristic);
+        }
+    },
+
+    //A* from the footman and from the cells around the townhall at the same time, meeting in the middle
+    BIDIRECTIONAL {
+        @Override
+        public GridPlanner create(int xExtent, int yExtent, Heuristic heuristic) {
+            return new BidirectionalAStar(xExtent, yExtent, heuristic);
+        }
+    },
+
+    //HPA*, searches a graph of cluster entrances and only turns the first few legs of the route into steps
+    HIERARCHICAL {
+        @Override
+        public GridPlanner create(int xExtent, int yExtent, Heuristic heuristic) {
+            return new HierarchicalPlanner(xExtent, yExtent, heuristic);
+        }
+    };
+
+    public abstract GridPlanner create(int xExtent, int yExtent, Heuristic heuristic);
+}
@@ -0,0 +1,72 @@
+package edu.cwru.sepia.agent;
+
+/**
+ * Decides when the footman's path has to be planned again because of the enemy footman. Only the enemy's last
+ * cell and last step are remembered, and a replan is asked for only when the enemy is standing on one of the next
+ * few cells of the path, or is about to step onto the cell the footman is stepping into. An enemy moving around far
+ * from the path is ignored. The planners only go around the cell the enemy stands on, so a cell it is only about to
+ * step onto further down the path would give the same path again and doesn't count.
+ *
+ * It has to be asked every turn, even on turns the path is planned again anyway, so the last cell and step stay
+ * up to date.
+ */
+public class ReplanPolicy {
+
+    public static final int DEFAULT_LOOKAHEAD = 3;
+
+    private final int lookahead;
+    private int lastEnemyX = -1;
+    private int lastEnemyY = -1;
+    private int velocityX;
+    private int velocityY;
+
+    /**
+     * @param lookahead How many of the remaining steps are checked against the enemy footman
+     */
+    public ReplanPolicy(int lookahead) {
+        this.lookahead = lookahead;
+    }
+
+    /**
+     * @param path The path being walked, or null if the last plan found no way to the townhall
+     * @param nextCell The cell the footman is stepping into right now, -1 if none
+     * @param enemyX Current x of the enemy footman
+     * @param enemyY Current y of the enemy footman
+     * @param xExtent Width of the map
+     * @param yExtent Height of the map
+     * @return True if the path should be thrown away and planned again
+     */
+    public boolean shouldReplan(GridPath path, int nextCell, int enemyX, int enemyY, int xExtent, int yExtent) {
+        boolean moved = lastEnemyX != -1 && (enemyX != lastEnemyX || enemyY != lastEnemyY);
+        //the enemy moves one cell per turn, anything else (standing still, first sighting, respawn) doesn't give a
+        //direction
+        if (moved && Math.abs(enemyX - lastEnemyX) <= 1 && Math.abs(enemyY - lastEnemyY) <= 1) {
+            velocityX = enemyX - lastEnemyX;
+            velocityY = enemyY - lastEnemyY;
+        } else {
+            velocityX = 0;
+            velocityY = 0;
+        }
+        lastEnemyX = enemyX;
+        lastEnemyY = enemyY;
+
+        //with no path the enemy was probably in the way, so it's worth trying again once it steps aside
+        if (path == null)
+            return moved;
+
+        int enemyCell = enemyY * xExtent + enemyX;
+        int predictedX = enemyX + velocityX;
+        int predictedY = enemyY + velocityY;
+        int predictedCell = predictedX >= 0 && predictedX < xExtent && predictedY >= 0 && predictedY < yExtent
+                ? predictedY * xExtent + predictedX : enemyCell;
+
+        if (nextCell != -1 && (nextCell == enemyCell || nextCell == predictedCell))
+            return true;
+        int window = Math.min(lookahead, path.size());
+        for (int ahead = 0; ahead < window; ahead++) {
+            if (path.peek(ahead) == enemyCell)
+                return true;
+        }
+        return false;
+    }
+}
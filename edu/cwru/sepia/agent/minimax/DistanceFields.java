@@ -0,0 +1,181 @@
+package edu.cwru.sepia.agent.minimax;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Walking distances on a map, one breadth first search per target cell instead of one per lookup. The search from
+ * a target fills a field with the number of north/east/south/west steps from every cell to the target, going
+ * around trees, and the field is kept so every later lookup for that target is an array read.
+ *
+ * Fields are made the first time their target is asked for and kept in a table. When FIELD_BUDGET shorts worth of
+ * fields cover every cell of the map the table has a slot per cell and nothing is ever dropped. Otherwise the
+ * table is split in sets of WAYS slots, a target goes in the set its hashed cell picks, and a miss replaces a field
+ * of that set that hasn't been used since the set's last miss (second chance, close to least recently used). So
+ * big maps keep the busy targets, and a few targets that happen to share a set don't push each other out.
+ * The table takes no locks: a field's target and distances never change once it is made, and its final fields
+ * make it safe to hand to the other search threads through a plain array. The used marks are only a hint, a lost
+ * update just picks a different field to replace. Two threads that miss on the same target both search and one
+ * of the equal fields is kept.
+ *
+ * One instance is kept per map across turns (see forMap), so the fields of a turn are still there the next turn.
+ */
+public class DistanceFields {
+
+    //about 8MB of fields, counted in shorts
+    private static final int FIELD_BUDGET = 1 << 22;
+
+    //slots per set when the table can't hold every target
+    private static final int WAYS = 4;
+
+    //the field value of a cell the target can't be reached from
+    public static final int UNREACHABLE = -1;
+
+    //the fields of the map the last turn was played on
+    private static DistanceFields shared;
+
+    private final int mapX;
+    private final int mapY;
+    private final boolean[][] pathFindingMap;
+    //a path can't be longer than the number of cells, so fields only need ints on maps with more cells than a
+    //short can count
+    private final boolean wide;
+    private final Field[] fields;
+    //true when there is a slot for every cell, a target's slot is then its cell
+    private final boolean everyCell;
+    private final int setMask;
+
+    /**
+     * @return The distance fields of the last map asked for if it has the same trees, otherwise new empty ones
+     */
+    public static synchronized DistanceFields forMap(int mapX, int mapY, boolean[][] pathFindingMap) {
+        if (shared == null || shared.mapX != mapX || shared.mapY != mapY || !Arrays.deepEquals(shared.pathFindingMap, pathFindingMap))
+            shared = new DistanceFields(mapX, mapY, pathFindingMap);
+        return shared;
+    }
+
+    public DistanceFields(int mapX, int mapY, boolean[][] pathFindingMap) {
+        this.mapX = mapX;
+        this.mapY = mapY;
+        this.pathFindingMap = pathFindingMap;
+        int cells = mapX * mapY;
+        wide = cells > Short.MAX_VALUE;
+        int capacity = Math.max(1, FIELD_BUDGET / (wide ? 2 * cells : cells));
+        everyCell = capacity >= cells;
+        if (everyCell) {
+            fields = new Field[cells];
+            setMask = 0;
+        }
+        else {
+            //the most sets of WAYS slots that fit, a power of two so the hash can be masked
+            int sets = Integer.highestOneBit(Math.max(1, capacity / WAYS));
+            fields = new Field[sets * WAYS];
+            setMask = sets - 1;
+        }
+    }
+
+    /**
+     * @return Number of steps from (fromX, fromY) to (toX, toY) through cells without trees, or UNREACHABLE
+     */
+    public int getDistance(int fromX, int fromY, int toX, int toY) {
+        return field(toY * mapX + toX).getDistance(fromY * mapX + fromX);
+    }
+
+    private Field field(int target) {
+        if (everyCell) {
+            Field field = fields[target];
+            if (field == null) {
+                field = search(target);
+                fields[target] = field;
+            }
+            return field;
+        }
+
+        //cells in a column are mapX apart, so the cell is mixed before picking a set or a map whose width the
+        //number of sets divides would put a whole column in one set
+        int hash = target * 0x9E3779B9;
+        int first = ((hash ^ hash >>> 16) & setMask) * WAYS;
+        for (int way = first; way < first + WAYS; way++) {
+            Field field = fields[way];
+            if (field != null && field.target == target) {
+                //only written when it changes, so threads reading a busy field don't keep fighting over it
+                if (!field.used)
+                    field.used = true;
+                return field;
+            }
+        }
+        Field field = search(target);
+        fields[replaced(first)] = field;
+        return field;
+    }
+
+    //an empty slot of the set if there is one, otherwise the first field not used since the set's last miss. the
+    //fields passed over lose their mark, so a field has to keep being used to stay
+    private int replaced(int first) {
+        for (int way = first; way < first + WAYS; way++) {
+            if (fields[way] == null)
+                return way;
+        }
+        for (int way = first; way < first + WAYS; way++) {
+            Field field = fields[way];
+            if (!field.used)
+                return way;
+            field.used = false;
+        }
+        return first;
+    }
+
+    //breadth first search out from the target, the target itself can be stood next to but isn't walked through
+    private Field search(int target) {
+        int[] field = new int[mapX * mapY];
+        Arrays.fill(field, UNREACHABLE);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        field[target] = 0;
+        queue.add(target);
+        while (!queue.isEmpty()) {
+            int cell = queue.poll();
+            int x = cell % mapX;
+            int y = cell / mapX;
+            visit(field, queue, cell, x, y - 1);
+            visit(field, queue, cell, x + 1, y);
+            visit(field, queue, cell, x, y + 1);
+            visit(field, queue, cell, x - 1, y);
+        }
+        if (wide)
+            return new Field(target, null, field);
+        short[] narrow = new short[field.length];
+        for (int cell = 0; cell < field.length; cell++) {
+            narrow[cell] = (short) field[cell];
+        }
+        return new Field(target, narrow, null);
+    }
+
+    private void visit(int[] field, ArrayDeque<Integer> queue, int from, int x, int y) {
+        if (x < 0 || x >= mapX || y < 0 || y >= mapY || pathFindingMap[y][x])
+            return;
+        int cell = y * mapX + x;
+        if (field[cell] != UNREACHABLE)
+            return;
+        field[cell] = field[from] + 1;
+        queue.add(cell);
+    }
+
+    private static class Field {
+        private final int target;
+        //one of the two is null, see wide
+        private final short[] distances;
+        private final int[] wideDistances;
+        //set by lookups, cleared by misses in the set that pass over it
+        private boolean used;
+
+        Field(int target, short[] distances, int[] wideDistances) {
+            this.target = target;
+            this.distances = distances;
+            this.wideDistances = wideDistances;
+        }
+
+        int getDistance(int cell) {
+            return distances != null ? distances[cell] : wideDistances[cell];
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package edu.cwru.sepia.agent.minimax;
+
+import edu.cwru.sepia.environment.model.state.State;
+
+import java.util.List;
+
+/**
+ * Everything about a game that doesn't change during a search: the map, the trees, the unit stats and which unit
+ * sits in which slot. It is built once from the SEPIA state and shared by every GameState of the search, so the
+ * states themselves only carry positions, hp and who is alive.
+ *
+ * Footmen take the first slots and archers the rest, in the order SEPIA lists their ids.
+ */
+public class GameContext {
+
+    //a joint action has GameState.ACTION_BITS bits per unit in a long, and an attack code has to fit in them too
+    public static final int MAX_UNITS = 12;
+
+    private final int mapX;
+    private final int mapY;
+    private final boolean[][] pathFindingMap;
+    private final DistanceFields distanceFields;
+    private final int[] unitIDs;
+    private final int footmanCount;
+    private final int archerDamage, footmanDamage;
+    private final int archerRange, footmanRange;
+
+    public GameContext(State.StateView state) {
+        mapX = state.getXExtent();
+        mapY = state.getYExtent();
+        archerRange = state.getUnit(state.getUnitIds(1).get(0)).getTemplateView().getRange();
+        footmanRange = state.getUnit(state.getUnitIds(0).get(0)).getTemplateView().getRange();
+        archerDamage = state.getUnit(state.getUnitIds(1).get(0)).getTemplateView().getBasicAttack();
+        footmanDamage = state.getUnit(state.getUnitIds(0).get(0)).getTemplateView().getBasicAttack();
+
+        //one pass over the trees, every cell not set here is free
+        pathFindingMap = new boolean[mapY][mapX];
+        for (Integer obstacleID: state.getAllResourceIds()){
+            pathFindingMap[state.getResourceNode(obstacleID).getYPosition()][state.getResourceNode(obstacleID).getXPosition()] = true;
+        }
+        distanceFields = DistanceFields.forMap(mapX, mapY, pathFindingMap);
+
+        List<Integer> footmen = state.getUnitIds(0);
+        List<Integer> archers = state.getUnitIds(1);
+        footmanCount = footmen.size();
+        if (footmen.size() + archers.size() > MAX_UNITS) {
+            System.err.println("The search handles at most " + MAX_UNITS + " units");
+            System.exit(1);
+        }
+        unitIDs = new int[footmen.size() + archers.size()];
+        for (int slot = 0; slot < unitIDs.length; slot++) {
+            unitIDs[slot] = slot < footmanCount ? footmen.get(slot) : archers.get(slot - footmanCount);
+        }
+    }
+
+    public int getMapX() {
+        return mapX;
+    }
+
+    public int getMapY() {
+        return mapY;
+    }
+
+    //true if (x, y) is on the map and has no tree on it, units are not counted here, see GameState
+    public boolean isFree(int x, int y) {
+        return x >= 0 && x < mapX && y >= 0 && y < mapY && !pathFindingMap[y][x];
+    }
+
+    public boolean[][] getPathFindingMap() {
+        return pathFindingMap;
+    }
+
+    //walking distances shared by every state of this game, and by the games of later turns on the same map
+    public DistanceFields getDistanceFields() {
+        return distanceFields;
+    }
+
+    public int getUnitCount() {
+        return unitIDs.length;
+    }
+
+    public int getFootmanCount() {
+        return footmanCount;
+    }
+
+    public int getUnitID(int slot) {
+        return unitIDs[slot];
+    }
+
+    //the slot of a unit id, -1 if the unit isn't in this game
+    public int getSlot(int unitID) {
+        for (int slot = 0; slot < unitIDs.length; slot++) {
+            if (unitIDs[slot] == unitID)
+                return slot;
+        }
+        return -1;
+    }
+
+    public boolean isFootman(int slot) {
+        return slot < footmanCount;
+    }
+
+    public int getDamage(int slot) {
+        return isFootman(slot) ? footmanDamage : archerDamage;
+    }
+
+    public int getRange(int slot) {
+        return isFootman(slot) ? footmanRange : archerRange;
+    }
+}
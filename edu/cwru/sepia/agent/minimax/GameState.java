@@ -1,15 +1,10 @@
 package edu.cwru.sepia.agent.minimax;
 
 import edu.cwru.sepia.action.Action;
-import edu.cwru.sepia.action.ActionType;
-import edu.cwru.sepia.action.DirectedAction;
-import edu.cwru.sepia.action.TargetedAction;
-import edu.cwru.sepia.agent.AstarAgent;
 import edu.cwru.sepia.environment.model.state.State;
 import edu.cwru.sepia.util.Direction;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * This class stores all of the information the agent
@@ -18,14 +13,17 @@ import java.util.stream.Collectors;
  *
  * Add any information or methods you would like to this class,
  * but do not delete or change the signatures of the provided methods.
+ *
+ * The units are stored by slot (see GameContext) in a few small arrays, and everything that is the same for every
+ * state of a search lives in the shared GameContext, so copying a state only copies those arrays.
  */
 public class GameState{
 
 
-    //this is a helper class that simply store the position of a unit
-    public class UnitPosition{
-        private int x,y;
-        private UnitPosition(int x, int y){
+    //this is a helper class that simply store the position of a tree
+    public static class UnitPosition{
+        private final int x,y;
+        public UnitPosition(int x, int y){
             this.x = x;
             this.y = y;
         }
@@ -38,17 +36,22 @@ public class GameState{
             return x;
         }
 
-        public void setX(int x) {
-            this.x = x;
+        @Override
+        public String toString() {
+            return "x=" + x + ", y= " + y;
         }
 
-        public void setY(int y) {
-            this.y = y;
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            UnitPosition position = (UnitPosition) o;
+            return x == position.x && y == position.y;
         }
 
         @Override
-        public String toString() {
-            return "x=" + x + ", y= " + y;
+        public int hashCode() {
+            return Objects.hash(x, y);
         }
     }
 
@@ -86,168 +89,233 @@ public class GameState{
      *
      * @param state Current state of the episode
      */
-    private  int mapX;
-    private  int mapY;
-    private  List<UnitPosition> obstacles = new LinkedList<>();
-    private  List<Integer> archerID = new LinkedList<>();
-    private  List<Integer> footmenID = new LinkedList<>();
-    private Map<Integer, UnitPosition> unitPositionMap = new HashMap<>();
-    private Map<Integer, Integer>unitHPMap =  new HashMap<>();
-    private  int archerDamage, footmanDamage;
-    private final int ARCHER_RANGE;
-    private final int FOOTMAN_RANGE;
-    private boolean[][] pathFindingMap;
+    //a joint action gives each unit slot this many bits for its action code, see getJointActions
+    public static final int ACTION_BITS = 5;
+    private static final int ACTION_MASK = (1 << ACTION_BITS) - 1;
+    //action codes from this one up are attacks, on the slot ATTACK below the code
+    static final int ATTACK = 5;
+    //the four directions a unit can move in, action codes 1 to 4
+    private static final Direction[] MOVES = {Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST};
+
+    //the features the utility is a linear combination of, as indexes into features and WEIGHTS:
+    //a constant 1, the walking distance of every live footman to the target archer added up, and the hp of the
+    //live footmen and of the live archers added up
+    private static final int BIAS = 0;
+    private static final int DISTANCE = 1;
+    private static final int FOOTMAN_HP = 2;
+    private static final int ARCHER_HP = 3;
+    private static final int FEATURE_COUNT = 4;
+    //how much each feature counts. the hp sums weigh nothing for now, the footmen only chase the target
+    private static final double[] WEIGHTS = {100, -1, 0, 0};
+
+    private final GameContext context;
+
+    //position and hp of the unit in each slot, a dead unit keeps its last values
+    private final short[] unitX;
+    private final short[] unitY;
+    private final short[] unitHP;
+    //bit i is set while the unit in slot i is alive
+    private int alive;
+    //one bit per map cell (y * mapX + x), set where a live unit stands, so together with the trees in the
+    //context a move can be checked with two lookups
+    private final long[] occupied;
+
+    //the feature values, kept up to date by moveUnit and damageUnit so getUtility doesn't have to work them out
+    private final int[] features;
+    //the archer the footmen go after, the first one alive (-1 once they are all dead), and each footman's distance
+    //to it as counted in the DISTANCE feature
+    private int target;
+    private final short[] targetDistance;
 
     //this is the turn variable, 0 represents max node, 1 represents min node
     private int turn;
 
+    //zobrist hash of the unit positions, hp and the turn, kept up to date as the state is changed
+    private long zobristKey;
+
+    //what makeMove changed, one frame per move not unmade yet: the units' x, y, hp and target distance, the alive
+    //bits, the features and target, and the hash
+    private short[] undoUnits = new short[0];
+    private int[] undoAlive = new int[0];
+    private int[] undoFeatures = new int[0];
+    private long[] undoKeys = new long[0];
+    private int undoDepth;
+
     //this constructor is used when a game state is first created, it will get the initial value of local fields from the state view
     public GameState(State.StateView state) {
-        //get the map size
-        mapX = state.getXExtent();
-        mapY = state.getYExtent();
-        ARCHER_RANGE = state.getUnit(state.getUnitIds(1).get(0)).getTemplateView().getRange();
-        FOOTMAN_RANGE = state.getUnit(state.getUnitIds(0).get(0)).getTemplateView().getRange();
-        for (Integer obstacleID: state.getAllResourceIds()){
-            obstacles.add(new UnitPosition(state.getResourceNode(obstacleID).getXPosition(),state.getResourceNode(obstacleID).getYPosition()));
-        }
-        footmenID.addAll(state.getUnitIds(0));
-        archerID.addAll(state.getUnitIds(1));
-        archerDamage = state.getUnit(state.getUnitIds(1).get(0)).getTemplateView().getBasicAttack();
-        footmanDamage = state.getUnit(state.getUnitIds(0).get(0)).getTemplateView().getBasicAttack();
-        for (Integer id: state.getAllUnitIds()){
-            unitPositionMap.put(id, new UnitPosition(state.getUnit(id).getXPosition(),state.getUnit(id).getYPosition()));
-            unitHPMap.put(id, state.getUnit(id).getHP());
-        }
-
-        this.pathFindingMap = new boolean[mapY][mapX];
-        for (int row = 0; row < pathFindingMap.length; row++) {
-            for (int col = 0; col < pathFindingMap[row].length; col++) {
-                int tempCol = col;
-                int tempRow = row;
-               if (obstacles.stream().anyMatch(position -> position.getX() == tempCol && position.getY() == tempRow))
-                    pathFindingMap[row][col] = true;
-                else
-                    pathFindingMap[row][col] = false;
-            }
+        context = new GameContext(state);
+        int units = context.getUnitCount();
+        unitX = new short[units];
+        unitY = new short[units];
+        unitHP = new short[units];
+        targetDistance = new short[units];
+        features = new int[FEATURE_COUNT];
+        features[BIAS] = 1;
+        occupied = new long[(context.getMapX() * context.getMapY() + 63) >>> 6];
+        for (int slot = 0; slot < units; slot++) {
+            int id = context.getUnitID(slot);
+            unitX[slot] = (short) state.getUnit(id).getXPosition();
+            unitY[slot] = (short) state.getUnit(id).getYPosition();
+            unitHP[slot] = (short) state.getUnit(id).getHP();
+            alive |= 1 << slot;
+            occupy(slot);
+            features[context.isFootman(slot) ? FOOTMAN_HP : ARCHER_HP] += unitHP[slot];
+            zobristKey ^= Zobrist.position(id, unitX[slot], unitY[slot]) ^ Zobrist.health(id, unitHP[slot]);
         }
+        retarget();
         //since when a game state is firstly access, the turn is always player turn, so the turn always starts 0
         turn = 0;
     }
 
-    //this constructor is a copy constructor that is used during alpha-beta search, it takes another gamestate and copy everything of this gamestate
+    //this constructor is a copy constructor, it takes another gamestate and copy everything of this gamestate
+    //except the moves it can still unmake. the search uses it to give each thread a state of its own
     public GameState(GameState gameState){
-        //this is where it adjusts the turn number from 1 to 0
-        if (gameState.getTurn() == 1)
-            this.setTurn(0);
-        else
-            this.setTurn(1);
-        this.ARCHER_RANGE = gameState.ARCHER_RANGE;
-        this.FOOTMAN_RANGE = gameState.FOOTMAN_RANGE;
-        this.setMapX(gameState.mapX);
-        this.setMapY(gameState.mapY);
-        this.setObstacles(gameState.obstacles);
-        this.setArcherID(gameState.archerID);
-        this.setFootmenID(gameState.footmenID);
-        this.setUnitPositionMap(gameState.unitPositionMap);
-        this.setUnitHPMap(gameState.unitHPMap);
-        this.setArcherDamage(gameState.archerDamage);
-        this.setFootmanDamage(gameState.footmanDamage);
-        this.setPathFindingMap(gameState.getPathFindingMap());
-    }
-
-    // getters and setters for the private fields
-    public List<Integer> getFootmenID() {
-        return footmenID;
+        this.context = gameState.context;
+        this.unitX = gameState.unitX.clone();
+        this.unitY = gameState.unitY.clone();
+        this.unitHP = gameState.unitHP.clone();
+        this.alive = gameState.alive;
+        this.occupied = gameState.occupied.clone();
+        this.features = gameState.features.clone();
+        this.target = gameState.target;
+        this.targetDistance = gameState.targetDistance.clone();
+        this.turn = gameState.turn;
+        this.zobristKey = gameState.zobristKey;
     }
 
-    public List<Integer> getArcherID() {
-        return archerID;
-    }
-
-    public Map<Integer, Integer> getUnitHPMap() {
-        return unitHPMap;
-    }
-
-    public Map<Integer, UnitPosition> getUnitPositionMap() {
-        return unitPositionMap;
+    // getters for the private fields
+    public GameContext getContext() {
+        return context;
     }
 
     public int getTurn() {
         return turn;
     }
 
-    public boolean[][] getPathFindingMap() {
-        return pathFindingMap;
-    }
-
-    public int getMapX() {
-        return mapX;
+    public long getZobristKey() {
+        return zobristKey;
     }
 
-    public int getMapY() {
-        return mapY;
+    public int getX(int slot) {
+        return unitX[slot];
     }
 
-    public void setArcherDamage(int archerDamage) {
-        this.archerDamage = archerDamage;
+    public int getY(int slot) {
+        return unitY[slot];
     }
 
-    public void setFootmanDamage(int footmanDamage) {
-        this.footmanDamage = footmanDamage;
+    public int getHP(int slot) {
+        return unitHP[slot];
     }
 
-    public void setPathFindingMap(boolean[][] pathFindingMap) {
-        this.pathFindingMap = pathFindingMap;
+    public boolean isAlive(int slot) {
+        return (alive & (1 << slot)) != 0;
     }
 
-    public void setArcherID(List<Integer> archerID) {
-        this.archerID.clear();
-        this.archerID.addAll(archerID);
+    //all the footmen or all the archers are dead
+    public boolean isGameOver() {
+        int footmen = (1 << context.getFootmanCount()) - 1;
+        return (alive & footmen) == 0 || (alive & ~footmen) == 0;
     }
 
-    public void setFootmenID(List<Integer> footmenID) {
-        this.footmenID.clear();
-        this.footmenID.addAll(footmenID);
+    //these are the method that modifies the state so the modified state can represent the new gamestate,
+    //they also swap the old zobrist key of what changed for the new one
+    private void moveUnit(int slot, int newX, int newY){
+        int id = context.getUnitID(slot);
+        zobristKey ^= Zobrist.position(id, unitX[slot], unitY[slot]) ^ Zobrist.position(id, newX, newY);
+        vacate(slot);
+        unitX[slot] = (short) newX;
+        unitY[slot] = (short) newY;
+        occupy(slot);
+        if (slot == target) {
+            retarget();
+        }
+        else if (context.isFootman(slot) && target != -1) {
+            int distance = pathDistance(slot, target);
+            features[DISTANCE] += distance - targetDistance[slot];
+            targetDistance[slot] = (short) distance;
+        }
     }
 
-    public void setMapX(int mapX) {
-        this.mapX = mapX;
+    //the unit in the slot loses damage hp, and is taken out of the state along with its keys if that kills it
+    private void damageUnit(int slot, int damage){
+        int id = context.getUnitID(slot);
+        int newHP = unitHP[slot] - damage;
+        zobristKey ^= Zobrist.health(id, unitHP[slot]) ^ Zobrist.health(id, newHP);
+        int hpFeature = context.isFootman(slot) ? FOOTMAN_HP : ARCHER_HP;
+        features[hpFeature] -= unitHP[slot] - newHP;
+        unitHP[slot] = (short) newHP;
+        if (newHP <= 0) {
+            vacate(slot);
+            alive &= ~(1 << slot);
+            zobristKey ^= Zobrist.position(id, unitX[slot], unitY[slot]) ^ Zobrist.health(id, newHP);
+            //a dead unit's hp (0 or less) no longer counts, and neither does a dead footman's distance
+            features[hpFeature] -= newHP;
+            if (context.isFootman(slot))
+                features[DISTANCE] -= targetDistance[slot];
+            else if (slot == target)
+                retarget();
+        }
     }
 
-    public void setMapY(int mapY) {
-        this.mapY = mapY;
+    //finds the first archer alive again and works out every live footman's distance to it from scratch, this is
+    //only needed when the target moves or dies
+    private void retarget(){
+        target = -1;
+        for (int slot = context.getFootmanCount(); slot < context.getUnitCount() && target == -1; slot++) {
+            if (isAlive(slot))
+                target = slot;
+        }
+        features[DISTANCE] = 0;
+        for (int footman = 0; footman < context.getFootmanCount(); footman++){
+            if (!isAlive(footman))
+                continue;
+            targetDistance[footman] = (short) (target == -1 ? 0 : pathDistance(footman, target));
+            features[DISTANCE] += targetDistance[footman];
+        }
     }
 
-    public void setObstacles(List<UnitPosition> obstacles) {
-        this.obstacles.clear();
-        this.obstacles.addAll(obstacles);
+    private void occupy(int slot){
+        int cell = unitY[slot] * context.getMapX() + unitX[slot];
+        occupied[cell >>> 6] |= 1L << cell;
     }
 
-    public void setUnitHPMap(Map<Integer, Integer> unitHPMap) {
-        this.unitHPMap.clear();
-        this.unitHPMap.putAll(unitHPMap);
+    private void clearCell(int slot){
+        int cell = unitY[slot] * context.getMapX() + unitX[slot];
+        occupied[cell >>> 6] &= ~(1L << cell);
     }
 
-    public void setUnitPositionMap(Map<Integer, UnitPosition> unitPositionMap) {
-        this.unitPositionMap.clear();
-        this.unitPositionMap.putAll(unitPositionMap);
+    //clears the unit's cell, unless another live unit ended up on it too (two units can step onto the same cell
+    //in one joint action)
+    private void vacate(int slot){
+        for (int other = 0; other < unitX.length; other++) {
+            if (other != slot && isAlive(other) && unitX[other] == unitX[slot] && unitY[other] == unitY[slot])
+                return;
+        }
+        clearCell(slot);
     }
 
-    public void setTurn(int turn) {
-        this.turn = turn;
+    //two states are the same if the same units are alive in the same places with the same hp and the same side moves next.
+    //the context never changes during a search so it is not compared
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GameState state = (GameState) o;
+        if (zobristKey != state.zobristKey || turn != state.turn || alive != state.alive)
+            return false;
+        for (int slot = 0; slot < unitX.length; slot++) {
+            if (isAlive(slot) && (unitX[slot] != state.unitX[slot] || unitY[slot] != state.unitY[slot] || unitHP[slot] != state.unitHP[slot]))
+                return false;
+        }
+        return true;
     }
 
-
-
-    //these are the method that modifies some of the private fields so the modified state can represent the new gamestate
-    public void replaceUnitHPMap(Integer unitID, int newHP){
-        unitHPMap.replace(unitID, newHP);
+    @Override
+    public int hashCode() {
+        return Long.hashCode(zobristKey);
     }
 
-    public void replaceUnitPositionMap(Integer unitID, UnitPosition newPosition){
-        unitPositionMap.replace(unitID, newPosition);
-    }
     /**
      * You will implement this function.
      *
@@ -269,29 +337,16 @@ public class GameState{
 
     //our strat is simple but easy to understand, it only takes the distance to the first archer among all the archer,
     //so footman will try to take out the one archer first by getting close to them.
-    //distance here is the distance calculated by the BFS shortest path algorithm
+    //distance here is the walking distance around the trees, see pathDistance.
+    //the features are kept up to date as units move and take damage, so this is only the weighted sum
     public double getUtility() {
-        if (archerID.isEmpty())
+        if (target == -1)
             return 100;
-        double archerHealth = 0;
-        double distance = -100;
-        double footmenHealthLoss = 0;
-        for (int archer: archerID){
-            archerHealth += getUnitHPMap().get(archer);
+        double utility = 0;
+        for (int feature = 0; feature < FEATURE_COUNT; feature++){
+            utility += WEIGHTS[feature] * features[feature];
         }
-        for (int footmen: footmenID){
-            footmenHealthLoss += (-getUnitHPMap().get(footmen));
-            int startX = getUnitPositionMap().get(footmen).getX();
-            int startY = getUnitPositionMap().get(footmen).getY();
-            int endX = getUnitPositionMap().get(archerID.get(0)).getX();
-            int endY = getUnitPositionMap().get(archerID.get(0)).getY();
-
-            distance += shortestPath(getPathFindingMap(), startX, startY, endX, endY);
-
-
-        }
-
-        return (-1 * (distance));
+        return utility;
     }
     private double straightLineDistance(int start_x, int start_y, int end_x, int end_y){
         return Math.hypot(Math.abs(start_x - end_x), Math.abs(start_y - end_y));
@@ -336,160 +391,207 @@ public class GameState{
      */
     public List<GameStateChild> getChildren() {
         /**the general idea of this method:
-        1.for each footman, get a list of all action this footman can do
-        2.for each archer, get a lost of all action this archer can do
-        3.for the list of list of actions of footman, find the permutations of these lists
-        4.do the number 3 except for the archer
-        5, go through the permutations and map them
-        6, for each action in those permutation, change the copied current state accordingly
-        7.add the new GamestateChild created from the map and modified copy of the current state.
-        8.return the result.
+        1.find whose turn it is, the footmen on a max node and the archers on a min node
+        2.for each unit of that side, get a list of all action this unit can do
+        3.for the list of list of actions, find the permutations of these lists
+        4, go through the permutations and make a child for each of them
+        5.return the result.
+        the search itself doesn't build children, it walks the same joint actions with makeMove and unmakeMove
         */
 
         //result is the result list that will be returned
         List<GameStateChild> result = new LinkedList<>();
-
-        List<Collection<Action>> footmenActions = new LinkedList<>();
-        List<Collection<Action>> archerActions = new LinkedList<>();
-        for (Integer id: footmenID){
-            footmenActions.add(legalActions(id));
-        }
-        for (Integer id: archerID){
-            archerActions.add(legalActions(id));
+        JointActions jointActions = getJointActions();
+        for (int i = 0; i < jointActions.size(); i++){
+            result.add(getChild(jointActions.get(i)));
         }
-
-        //here we add the possible actions that the footman can do and then pass in the actions the archers can do
-        result.addAll(updatedResults(footmenActions));
-        result.addAll(updatedResults(archerActions));
-
         return result;
     }
 
+    //the state after the joint action, together with the SEPIA actions that lead there
+    public GameStateChild getChild(long jointAction){
+        GameState child = new GameState(this);
+        child.apply(jointAction);
+        return new GameStateChild(getActions(jointAction), child);
+    }
 
-    //a helper method that return the list of GameStateChild given a list of list of actions
-    public List<GameStateChild> updatedResults(List<Collection<Action>> actionCombs){
-        //result is for result storage
-        List<GameStateChild> result = new LinkedList<>();
-        //permutation is the permutations of this action combs
-        Collection<List<Action>> permutation = permutations(actionCombs);
-
-        //for each list of action in permutation(so the possible actions in one ply)
-        for (List<Action> actions: permutation){
-            Map<Integer,Action> actionMap = new HashMap<>();
-
-            //this makes a copy of the current Gamestate
-            GameState temp = new GameState(this);
-
-            //for each action
-            for (Action action: actions){
-                int unitID = action.getUnitId();
-                //map the action
-                actionMap.put(action.getUnitId(),action);
-
-                //if the action is a movment, change the position
-                if (action.getType().equals(ActionType.PRIMITIVEMOVE)){
-                    temp.replaceUnitPositionMap(unitID,
-                            new UnitPosition(temp.unitPositionMap.get(unitID).getX() + ((DirectedAction) action).getDirection().xComponent(),
-                                    temp.unitPositionMap.get(unitID).getY() + ((DirectedAction) action).getDirection().yComponent()));
-                    //System.out.println(temp.unitPositionMap.get(action.getUnitId()));
-                }
-                //if the aciton is a attack, decrease the health of the target unit,
-                //and if the unit is dead after attack, remove everything that is related to this unit.
-                else {
-                    int currentHP = temp.getUnitHPMap().get(unitID);
-                    temp.replaceUnitHPMap(((TargetedAction) action).getTargetId(), (currentHP - (footmenID.contains(unitID) ? footmanDamage : archerDamage)));
-                    if (!(temp.unitHPMap.get(((TargetedAction) action).getTargetId()) == null) && temp.unitHPMap.get(((TargetedAction) action).getTargetId()) <= 0){
-                        int deadUnitID = ((TargetedAction) action).getTargetId();
-                        temp.getUnitPositionMap().remove(deadUnitID);
-                        temp.getUnitHPMap().remove(deadUnitID);
-                        temp.archerID.removeIf(x -> x == deadUnitID);
-                        temp.footmenID.removeIf(x -> x ==deadUnitID);
-                    }
-                }
+    /**
+     * Every joint action of the side whose turn it is, the footmen on turn 0 and the archers on turn 1, in the order
+     * getChildren returns them. A joint action packs one action code per unit slot, ACTION_BITS bits each: 0 if the
+     * unit does nothing, 1 to 4 for a move north, east, south or west, and ATTACK plus the slot of the target for an
+     * attack. Only each unit's own actions are worked out here, the joint actions are packed as they are asked for.
+     */
+    public JointActions getJointActions(){
+        boolean footmenMove = turn == 0;
+        int units = 0;
+        for (int slot = 0; slot < context.getUnitCount(); slot++){
+            if (isAlive(slot) && context.isFootman(slot) == footmenMove)
+                units++;
+        }
+        int[] slots = new int[units];
+        int[][] codes = new int[units][];
+        int[][] cells = new int[units][];
+        int[] targets = new int[units];
+        int[] groups = new int[units];
+        long unpruned = units == 0 ? 0 : 1;
+        units = 0;
+        for (int slot = 0; slot < context.getUnitCount(); slot++){
+            if (!isAlive(slot) || context.isFootman(slot) != footmenMove)
+                continue;
+            int[] unitCodes = legalActions(slot);
+            unpruned *= unitCodes.length;
+            slots[units] = slot;
+            codes[units] = unitCodes;
+            cells[units] = new int[unitCodes.length];
+            for (int k = 0; k < unitCodes.length; k++){
+                int code = unitCodes[k];
+                if (code > 0 && code < ATTACK)
+                    cells[units][k] = (unitY[slot] + MOVES[code - 1].yComponent()) * context.getMapX() + unitX[slot] + MOVES[code - 1].xComponent();
+                else
+                    cells[units][k] = -1;
+                if (code >= ATTACK)
+                    targets[units] |= 1 << (code - ATTACK);
             }
-            result.add(new GameStateChild(actionMap, temp));
+            //two footmen with the same hp can trade places without changing anything the search cares about.
+            //archers can't, the utility goes after the first archer that is alive
+            groups[units] = footmenMove ? unitHP[slot] : -1;
+            units++;
         }
-
-        return result;
+        return new JointActions(slots, codes, cells, targets, groups, unpruned);
+    }
+
+    //the SEPIA actions of a joint action, by unit id
+    public Map<Integer, Action> getActions(long jointAction){
+        Map<Integer,Action> actionMap = new HashMap<>();
+        for (int slot = 0; slot < context.getUnitCount(); slot++){
+            int code = actionCode(jointAction, slot);
+            int id = context.getUnitID(slot);
+            if (code >= ATTACK)
+                actionMap.put(id, Action.createPrimitiveAttack(id, context.getUnitID(code - ATTACK)));
+            else if (code != 0)
+                actionMap.put(id, Action.createPrimitiveMove(id, MOVES[code - 1]));
+        }
+        return actionMap;
     }
 
-    //this method takes a unitview and return all legal directions this unit can go to(it exclude the four corner directions)
-    private List<Direction> legalDirection(Integer unitID){
-        List<Direction> result = new LinkedList<>();
-        for (Direction direction: Direction.values()){
-            if (isLegalToMoveTo(unitPositionMap.get(unitID).getX(),unitPositionMap.get(unitID).getY(),direction)
-                    && !direction.name().equals("SOUTHEAST")
-                    && !direction.name().equals("SOUTHWEST")
-                    && !direction.name().equals("NORTHEAST")
-                    && !direction.name().equals("NORTHWEST"))
-                result.add(direction);
+    /**
+     * Applies a joint action to this state in place and remembers what it changed, so unmakeMove can put it back.
+     * The search goes down and back up one state this way instead of copying a state for every child.
+     */
+    public void makeMove(long jointAction){
+        int units = unitX.length;
+        if (undoDepth == undoAlive.length){
+            int frames = Math.max(8, undoAlive.length * 2);
+            undoUnits = Arrays.copyOf(undoUnits, frames * 4 * units);
+            undoAlive = Arrays.copyOf(undoAlive, frames);
+            undoFeatures = Arrays.copyOf(undoFeatures, frames * (FEATURE_COUNT + 1));
+            undoKeys = Arrays.copyOf(undoKeys, frames);
         }
-        //debugList(result);
-        return result;
+        int frame = undoDepth * 4 * units;
+        System.arraycopy(unitX, 0, undoUnits, frame, units);
+        System.arraycopy(unitY, 0, undoUnits, frame + units, units);
+        System.arraycopy(unitHP, 0, undoUnits, frame + 2 * units, units);
+        System.arraycopy(targetDistance, 0, undoUnits, frame + 3 * units, units);
+        int featureFrame = undoDepth * (FEATURE_COUNT + 1);
+        System.arraycopy(features, 0, undoFeatures, featureFrame, FEATURE_COUNT);
+        undoFeatures[featureFrame + FEATURE_COUNT] = target;
+        undoAlive[undoDepth] = alive;
+        undoKeys[undoDepth] = zobristKey;
+        undoDepth++;
+        apply(jointAction);
+    }
+
+    //puts back the state from before the last makeMove
+    public void unmakeMove(){
+        undoDepth--;
+        int units = unitX.length;
+        //only live units have bits, so clearing all their cells empties the bitset
+        for (int slot = 0; slot < units; slot++) {
+            if (isAlive(slot))
+                clearCell(slot);
+        }
+        int frame = undoDepth * 4 * units;
+        System.arraycopy(undoUnits, frame, unitX, 0, units);
+        System.arraycopy(undoUnits, frame + units, unitY, 0, units);
+        System.arraycopy(undoUnits, frame + 2 * units, unitHP, 0, units);
+        System.arraycopy(undoUnits, frame + 3 * units, targetDistance, 0, units);
+        int featureFrame = undoDepth * (FEATURE_COUNT + 1);
+        System.arraycopy(undoFeatures, featureFrame, features, 0, FEATURE_COUNT);
+        target = undoFeatures[featureFrame + FEATURE_COUNT];
+        alive = undoAlive[undoDepth];
+        for (int slot = 0; slot < units; slot++) {
+            if (isAlive(slot))
+                occupy(slot);
+        }
+        zobristKey = undoKeys[undoDepth];
+        turn = 1 - turn;
+    }
+
+    //for each action of the joint action, change the state accordingly, then it is the other side's turn
+    private void apply(long jointAction){
+        for (int slot = 0; slot < unitX.length; slot++){
+            int code = actionCode(jointAction, slot);
+            //if the action is a movment, change the position
+            if (code > 0 && code < ATTACK){
+                Direction direction = MOVES[code - 1];
+                moveUnit(slot, unitX[slot] + direction.xComponent(), unitY[slot] + direction.yComponent());
+            }
+            //if the aciton is a attack, decrease the health of the target unit by the attacker's damage,
+            //a target that another unit of the same side already killed this turn is left alone
+            else if (code >= ATTACK){
+                int target = code - ATTACK;
+                if (isAlive(target))
+                    damageUnit(target, context.getDamage(slot));
+            }
+        }
+        turn = 1 - turn;
+        zobristKey ^= Zobrist.SIDE_TO_MOVE;
+    }
+
+    //the action code of one slot in a joint action
+    static int actionCode(long jointAction, int slot){
+        return (int) (jointAction >>> (slot * ACTION_BITS)) & ACTION_MASK;
     }
 
-    //this method returns if a direction is legal to go given the current location of the unit and the direction this unit is going
+    //this method returns if a direction is legal to go given the current location of the unit and the direction this unit is going,
+    //the cell has to be on the map with no tree and no live unit on it
     private boolean isLegalToMoveTo(int x, int y, Direction direction){
         int newX = x + direction.xComponent();
         int newY = y + direction.yComponent();
-
-        if (newX >= mapX || newX < 0)
-            return false;
-        else if (newY >= mapY || newY < 0)
+        if (!context.isFree(newX, newY))
             return false;
-        else
-            return obstacles.stream().noneMatch(obstacle -> obstacle.getX() == newX && obstacle.getY() == newY);
+        int cell = newY * context.getMapX() + newX;
+        return (occupied[cell >>> 6] & (1L << cell)) == 0;
     }
 
-    //this method returns a list of unitIDs of possible targets the attacker unit can attack
-    private List<Integer> legalTargets(Integer attacker, List<Integer> targetsID){
-        return targetsID.stream().filter(id ->
-                    straightLineDistance(unitPositionMap.get(attacker).getX(),unitPositionMap.get(attacker).getY(),unitPositionMap.get(id).getX(),unitPositionMap.get(id).getY())
-                            <= (footmenID.contains(attacker)?FOOTMAN_RANGE:ARCHER_RANGE)).collect(Collectors.toList());
-    }
-
-    //this method return a list of actions a unit a do given its unitID
-    private List<Action> legalActions(Integer id){
-        List<Action> actions = new LinkedList<>();
-        for (Direction direction: legalDirection(id)){
-            actions.add(Action.createPrimitiveMove(id, direction));
+    //this method returns a list of slots of possible targets on the other side the attacker unit can attack
+    private List<Integer> legalTargets(int attacker){
+        List<Integer> targets = new LinkedList<>();
+        for (int slot = 0; slot < context.getUnitCount(); slot++) {
+            if (isAlive(slot) && context.isFootman(slot) != context.isFootman(attacker)
+                    && straightLineDistance(unitX[attacker], unitY[attacker], unitX[slot], unitY[slot]) <= context.getRange(attacker))
+                targets.add(slot);
         }
-        if (archerID.contains(id)) {
-            for (Integer target : legalTargets(id, footmenID)) {
-                actions.add(Action.createPrimitiveAttack(id, target));
-            }
+        return targets;
+    }
+
+    //this method return the action codes a unit can do given its slot, attacks first since they are usually the
+    //better moves, then moves in the four directions it can go to (the corner directions are left out)
+    //a unit with nowhere to go and nothing in range waits, so the rest of its side can still act
+    private int[] legalActions(int slot){
+        List<Integer> targets = legalTargets(slot);
+        int[] codes = new int[MOVES.length + targets.size()];
+        int index = 0;
+        for (Integer target : targets) {
+            codes[index++] = ATTACK + target;
         }
-        else {
-            for (Integer target : legalTargets(id, archerID)) {
-                actions.add(Action.createPrimitiveAttack(id, target));
-            }
-        }
-        //debugList(actions);
-        return actions;
-    }
-
-
-    //this method takes a list of lists, and return the permutation of the elements in those lists
-    private Collection<List<Action>> permutations(List<Collection<Action>> collections) {
-        if (collections == null || collections.isEmpty()) {
-            return Collections.emptyList();
-        } else {
-            Collection<List<Action>> result = new LinkedList<>();
-            findPermutations(collections, result, 0, new LinkedList<>());
-            return result;
-        }
-    }
-    private void findPermutations(List<Collection<Action>> inputList, Collection<List<Action>> outputList, int d, List<Action> tempList) {
-        if (d == inputList.size()) {
-            outputList.add(tempList);
-            return;
-        }
-        Collection<Action> currentCollection = inputList.get(d);
-        for (Action currElement : currentCollection) {
-            List<Action> copy = new LinkedList<>(tempList);
-            copy.add(currElement);
-            findPermutations(inputList, outputList, d + 1, copy);
+        for (int move = 0; move < MOVES.length; move++){
+            if (isLegalToMoveTo(unitX[slot], unitY[slot], MOVES[move]))
+                codes[index++] = 1 + move;
         }
+        if (index == 0)
+            return new int[]{0};
+        return Arrays.copyOf(codes, index);
     }
 
     //debugging methods
@@ -503,82 +605,14 @@ public class GameState{
         System.out.println("-------------");
     }
 
-    private int shortestPath(boolean[][] map, int startX, int startY, int endX, int endY) {
-        // Create a queue for all nodes we will process in breadth-first order.
-        // Each node is a data structure that holds the position of the unit.
-        Queue<pathFindingNode> queue = new ArrayDeque<>();
-
-        // Matrix for "discovered" fields
-        boolean[][] visited = new boolean[mapY + 10][mapX + 10];
-
-        // this is the starting position so we want that to be in visited queue
-        visited[startY][startX] = true;
-        queue.add(new pathFindingNode(startX, startY, null, 0));
-
-        while (!queue.isEmpty()) {
-            pathFindingNode node = queue.poll();
-            Queue<PathFindingDirection> result = new LinkedList<>();
-            // Go breath-first into each direction
-            for (PathFindingDirection dir : PathFindingDirection.values()) {
-                int newX = node.x + dir.getDx();
-                int newY = node.y + dir.getDy();
-                PathFindingDirection newDir = node.initialDir == null ? dir : node.initialDir;
-
-                // target found?
-                if (newX == endX && newY == endY) {
-                    return node.distance;
-                }
-
-                // Is there a path in the direction
-                // And has that field not yet been discovered?
-                if ( !(newX < 0 || newX >= mapX) && !(newY < 0 || newY >= mapY) && !map[newY][newX] && !visited[newY][newX]){
-                    // "Discover" and enqueue that field
-                    visited[newY][newX] = true;
-                    queue.add(new pathFindingNode(newX, newY, newDir, node.distance + 1));
-                }
-            }
-        }
-
-        return -1;
-    }
-
-    //this is a node that holds the basic node on path finding map
-    private static class pathFindingNode {
-        final int x;
-        final int y;
-        final PathFindingDirection initialDir;
-        int distance;
-
-        public pathFindingNode(int x, int y, PathFindingDirection initialDir,int distance) {
-            this.x = x;
-            this.y = y;
-            this.initialDir = initialDir;
-            this.distance = distance;
-        }
-    }
-
-    //here is a enum to hold the direction the node was coming from
-    public enum PathFindingDirection {
-        UP(0, -1),
-        RIGHT(1, 0),
-        DOWN(0, 1),
-        LEFT(-1, 0);
-
-        private final int dx;
-        private final int dy;
-
-        PathFindingDirection(int dx, int dy) {
-            this.dx = dx;
-            this.dy = dy;
-        }
-
-        public int getDx() {
-            return dx;
-        }
-
-        public int getDy() {
-            return dy;
-        }
+    //the distance the old BFS used to give back, which counts the steps up to the cell next to the archer, so it is
+    //one less than the walk (and 1 if the footman is standing on the archer's cell). the walk itself comes from the
+    //distance field of the archer's cell, which is searched once per game instead of once per state
+    private int pathDistance(int footman, int archer) {
+        int steps = context.getDistanceFields().getDistance(unitX[footman], unitY[footman], unitX[archer], unitY[archer]);
+        if (steps == DistanceFields.UNREACHABLE)
+            return -1;
+        return steps == 0 ? 1 : steps - 1;
     }
 
 }
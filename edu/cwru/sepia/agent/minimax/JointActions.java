@@ -0,0 +1,130 @@
+package edu.cwru.sepia.agent.minimax;
+
+import java.util.Arrays;
+
+/**
+ * The joint actions of the side to move in a state, with the ones that can't matter left out. They are numbered
+ * in mixed radix order: each living unit of the side picks one of its legal actions, the first unit's choice
+ * changing slowest, and every unit lists its attacks before its moves, so the joint actions where everyone attacks
+ * come first.
+ *
+ * A joint action is left out when
+ * - two units step onto the same cell,
+ * - it is another joint action with two units' attack targets swapped (both units of a side hit as hard, so the
+ *   state afterwards is the same), only the one where the earlier unit hits the lower slot is kept,
+ * - or it is another joint action with two interchangeable units' destinations swapped (see GameState), only the
+ *   one where the earlier unit goes to the lower cell is kept.
+ * The choices are made unit by unit and a choice that already breaks one of these is not taken any further, so the
+ * work is about the number of joint actions kept rather than the number of combinations.
+ */
+public class JointActions {
+
+    private final long[] jointActions;
+    private final long unpruned;
+
+    /**
+     * @param slots Slot of each living unit of the side
+     * @param codes Action codes of each unit, attacks first
+     * @param cells For each unit and action, the cell a move goes to, -1 for the other actions
+     * @param targets For each unit, bit t set if it can attack slot t
+     * @param groups For each unit, units with the same group (at least 0) are interchangeable
+     * @param unpruned Number of joint actions there would be without any pruning
+     */
+    JointActions(int[] slots, int[][] codes, int[][] cells, int[] targets, int[] groups, long unpruned) {
+        this.unpruned = unpruned;
+        if (slots.length == 0) {
+            jointActions = new long[0];
+            return;
+        }
+        Generator generator = new Generator(slots, codes, cells, targets, groups);
+        generator.choose(0, 0L);
+        //with every combination pruned (units that can only step onto each other's cell) the side waits
+        if (generator.count == 0)
+            jointActions = new long[]{0};
+        else
+            jointActions = Arrays.copyOf(generator.found, generator.count);
+    }
+
+    public int size() {
+        return jointActions.length;
+    }
+
+    //the joint action with this index, packed as described in GameState.getJointActions
+    public long get(int index) {
+        return jointActions[index];
+    }
+
+    //how many joint actions of this node pruning left out
+    public long getPruned() {
+        return Math.max(0, unpruned - jointActions.length);
+    }
+
+    //walks the units in order and picks an action for each, skipping any choice that breaks a rule with a unit
+    //picked before it
+    private static class Generator {
+        private final int[] slots;
+        private final int[][] codes;
+        private final int[][] cells;
+        private final int[] targets;
+        private final int[] groups;
+        //the choice of every unit so far, as an index into its codes
+        private final int[] choice;
+        private long[] found = new long[16];
+        private int count;
+
+        Generator(int[] slots, int[][] codes, int[][] cells, int[] targets, int[] groups) {
+            this.slots = slots;
+            this.codes = codes;
+            this.cells = cells;
+            this.targets = targets;
+            this.groups = groups;
+            this.choice = new int[slots.length];
+        }
+
+        void choose(int unit, long jointAction) {
+            if (unit == slots.length) {
+                if (count == found.length)
+                    found = Arrays.copyOf(found, count * 2);
+                found[count++] = jointAction;
+                return;
+            }
+            for (int k = 0; k < codes[unit].length; k++) {
+                choice[unit] = k;
+                if (fitsWithEarlier(unit))
+                    choose(unit + 1, jointAction | (long) codes[unit][k] << (slots[unit] * GameState.ACTION_BITS));
+            }
+        }
+
+        private boolean fitsWithEarlier(int unit) {
+            int code = codes[unit][choice[unit]];
+            int cell = cells[unit][choice[unit]];
+            for (int earlier = 0; earlier < unit; earlier++) {
+                int earlierCode = codes[earlier][choice[earlier]];
+                int earlierCell = cells[earlier][choice[earlier]];
+                if (cell >= 0 && earlierCell >= 0) {
+                    if (cell == earlierCell)
+                        return false;
+                    if (groups[unit] >= 0 && groups[unit] == groups[earlier] && earlierCell > cell
+                            && canReach(earlier, cell) && canReach(unit, earlierCell))
+                        return false;
+                }
+                else if (code >= GameState.ATTACK && earlierCode >= GameState.ATTACK) {
+                    int target = code - GameState.ATTACK;
+                    int earlierTarget = earlierCode - GameState.ATTACK;
+                    if (earlierTarget > target && (targets[earlier] & (1 << target)) != 0
+                            && (targets[unit] & (1 << earlierTarget)) != 0)
+                        return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean canReach(int unit, int cell) {
+            for (int unitCell : cells[unit]) {
+                if (unitCell == cell)
+                    return true;
+            }
+            return false;
+        }
+    }
+}
@@ -9,11 +9,60 @@ import edu.cwru.sepia.util.Direction;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 public class MinimaxAlphaBeta extends Agent {
 
     private final int numPlys;
+    //milliseconds each turn may spend searching, 0 searches exactly numPlys deep however long that takes
+    private final long timeBudget;
+
+    private final boolean benchmark;
+    //only swapped out while benchmarking
+    private SearchMode searchMode;
+
+    //when the current search has to stop, 0 while it may run to the end
+    private volatile long deadline;
+    private volatile boolean timedOut;
+    //reading the clock costs about as much as evaluating a leaf, so it is only read every CLOCK_INTERVAL checks.
+    //the count is shared by the search threads without locking, a lost increment only puts the next read off
+    private static final int CLOCK_INTERVAL = 1024;
+    private int clockChecks;
+
+    //2^18 slots of two entries each, about 12MB
+    private static final int TRANSPOSITION_TABLE_BITS = 18;
+
+    //nodes with at least this many plys below them search their younger children in parallel,
+    //anything smaller costs more to hand to another thread than to search
+    private static final int PARALLEL_DEPTH = 2;
+
+    //half the width of an aspiration window, a few steps of the footmen
+    private static final double ASPIRATION_WINDOW = 5;
+
+    //thread counts the benchmark compares
+    private static final int[] BENCHMARK_THREADS = {1, 2, 4, 8, 16};
+
+    //kept between turns, the positions of one turn come up again in the next turn's search.
+    //the table and the pool are only swapped out while benchmarking
+    private TranspositionTable transpositionTable = new TranspositionTable(TRANSPOSITION_TABLE_BITS);
+
+    //null when searching on one thread
+    private ForkJoinPool pool;
+
+    private final MoveOrdering moveOrdering = new MoveOrdering();
+    //depth of the current search at the root, so a node can tell how many moves it is from the root
+    private int searchDepth;
+
+    //what the search did each turn, and the file the turns are written to at the end of the episode (null for none)
+    private final SearchMetrics metrics = new SearchMetrics();
+    private final String metricsFile;
+    //depth of the deepest search that finished this turn
+    private int completedDepth;
+
+    //value of the root found by the last search that finished
+    private double rootValue;
 
     public MinimaxAlphaBeta(int playernum, String[] args)
     {
@@ -26,25 +75,221 @@ public class MinimaxAlphaBeta extends Agent {
         }
 
         numPlys = Integer.parseInt(args[0]);
+
+        //args[1] optionally turns on iterative deepening, numPlys becomes the deepest it goes
+        timeBudget = args.length > 1 ? parseNumber(args[1], "time budget") : 0;
+        if(timeBudget < 0)
+        {
+            System.err.println("The time budget must be a number of milliseconds of at least 0");
+            System.exit(1);
+        }
+
+        //args[2] optionally sets how many threads search, 1 by default
+        long threads = args.length > 2 ? parseNumber(args[2], "number of threads") : 1;
+        //the most a ForkJoinPool takes
+        if(threads < 1 || threads > 32767)
+        {
+            System.err.println("The number of threads must be between 1 and 32767");
+            System.exit(1);
+        }
+        pool = threads > 1 ? new ForkJoinPool((int) threads) : null;
+
+        //args[3] optionally compares the search on different numbers of threads at the start of the episode
+        benchmark = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        //args[4] optionally picks the search, plain alpha beta by default
+        searchMode = args.length > 4 ? parseSearchMode(args[4]) : SearchMode.ALPHA_BETA;
+
+        //args[5] optionally names a file the search metrics of every turn are appended to, as json lines if it
+        //ends in .json or .jsonl and as csv otherwise
+        metricsFile = args.length > 5 ? args[5] : null;
+    }
+
+    private static long parseNumber(String value, String name)
+    {
+        try {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e) {
+            System.err.println("The " + name + " must be a whole number, got " + value);
+            System.exit(1);
+            return 0;
+        }
+    }
+
+    private static SearchMode parseSearchMode(String name)
+    {
+        try {
+            return SearchMode.valueOf(name.toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("Unknown search mode " + name + ", expected one of " + Arrays.toString(SearchMode.values()));
+            System.exit(1);
+            return null;
+        }
     }
 
     @Override
     public Map<Integer, Action> initialStep(State.StateView newstate, History.HistoryView statehistory) {
+        //a new episode can be on a different map, where the stored values are wrong
+        transpositionTable.clear();
+        if (benchmark) {
+            benchmarkModes(newstate);
+            benchmarkThreads(newstate);
+        }
         return middleStep(newstate, statehistory);
     }
 
     @Override
     public Map<Integer, Action> middleStep(State.StateView newstate, History.HistoryView statehistory) {
-        GameStateChild bestChild = alphaBetaSearch(new GameStateChild(newstate),
-                numPlys,
-                Double.NEGATIVE_INFINITY,
-                Double.POSITIVE_INFINITY);
+        GameStateChild bestChild;
+        metrics.startTurn();
+        completedDepth = 0;
+        //aspiration windows come from the value of the depth before, so that mode always deepens iteratively,
+        //without a time budget it just never runs out
+        if (timeBudget == 0 && !searchMode.usesAspirationWindows()) {
+            deadline = 0;
+            bestChild = alphaBetaSearch(new GameStateChild(newstate),
+                    numPlys,
+                    Double.NEGATIVE_INFINITY,
+                    Double.POSITIVE_INFINITY);
+        }
+        else {
+            bestChild = iterativeDeepening(new GameStateChild(newstate), timeBudget);
+        }
+        metrics.endTurn(completedDepth);
 
         return bestChild.action;
     }
 
+    //searches 1 ply deep, then 2, and so on until numPlys or until the time budget runs out, and returns the move
+    //of the deepest search that finished. each search leaves its best moves in the transposition table, where the
+    //next deeper one picks them up and tries them first, so the shallow searches mostly pay for themselves.
+    //the 1 ply search always runs to the end so there is a move to return. a budget of 0 never runs out.
+    //with aspiration windows each depth first gets a window around the value of the depth before, values rarely
+    //move much from one depth to the next. if the value lands on or outside the window it is only a bound, and
+    //the depth is searched again with the whole window
+    private GameStateChild iterativeDeepening(GameStateChild root, long budget)
+    {
+        long start = System.nanoTime();
+        GameStateChild bestChild = null;
+        for (int depth = 1; depth <= Math.max(1, numPlys); depth++) {
+            deadline = depth == 1 || budget == 0 ? 0 : start + budget * 1000000;
+            GameStateChild child;
+            if (searchMode.usesAspirationWindows() && bestChild != null) {
+                double previous = rootValue;
+                double alpha = previous - ASPIRATION_WINDOW;
+                double beta = previous + ASPIRATION_WINDOW;
+                child = alphaBetaSearch(root, depth, alpha, beta);
+                if (!timedOut && (rootValue <= alpha || rootValue >= beta))
+                    child = alphaBetaSearch(root, depth, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            }
+            else {
+                child = alphaBetaSearch(root, depth, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            }
+            if (timedOut)
+                break;
+            bestChild = child;
+            if (budget != 0 && System.nanoTime() - start >= budget * 1000000)
+                break;
+        }
+        return bestChild;
+    }
+
+    //runs iterative deepening to numPlys on one thread with each search mode, every run with an empty table of its
+    //own, and prints how many nodes each needed and whether it found the same move and value as plain alpha beta
+    private void benchmarkModes(State.StateView state)
+    {
+        TranspositionTable savedTable = transpositionTable;
+        ForkJoinPool savedPool = pool;
+        SearchMode savedMode = searchMode;
+        pool = null;
+
+        System.out.println("Search mode benchmark, " + numPlys + " plys");
+        long referenceNodes = 0;
+        GameStateChild referenceChild = null;
+        double referenceValue = 0;
+        for (SearchMode mode : SearchMode.values()) {
+            transpositionTable = new TranspositionTable(TRANSPOSITION_TABLE_BITS);
+            searchMode = mode;
+            metrics.startTurn();
+
+            long start = System.nanoTime();
+            GameStateChild child = iterativeDeepening(new GameStateChild(state), 0);
+            long elapsed = System.nanoTime() - start;
+            long nodes = metrics.getNodes();
+
+            if (mode == SearchMode.ALPHA_BETA) {
+                referenceNodes = nodes;
+                referenceChild = child;
+                referenceValue = rootValue;
+            }
+            boolean same = child != null && referenceChild != null && child.state.equals(referenceChild.state)
+                    && Double.doubleToLongBits(rootValue) == Double.doubleToLongBits(referenceValue);
+            System.out.println(mode + ": " + elapsed / 1e6 + " ms, " + nodes + " nodes (" + (double) nodes / Math.max(1, referenceNodes)
+                    + " of alpha beta), value " + rootValue + (same ? ", same move" : ", DIFFERENT move"));
+        }
+
+        transpositionTable = savedTable;
+        pool = savedPool;
+        searchMode = savedMode;
+    }
+
+    //searches the first state numPlys deep on each number of threads, every run with an empty table of its own,
+    //and prints how much faster than one thread it was and whether it picked the same move with the same value
+    private void benchmarkThreads(State.StateView state)
+    {
+        TranspositionTable savedTable = transpositionTable;
+        ForkJoinPool savedPool = pool;
+        deadline = 0;
+
+        //one run that isn't timed, so the first thread count isn't the one paying for the jit
+        transpositionTable = new TranspositionTable(TRANSPOSITION_TABLE_BITS);
+        pool = null;
+        alphaBetaSearch(new GameStateChild(state), numPlys, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+        System.out.println("Search benchmark, " + numPlys + " plys");
+        long serialTime = 0;
+        GameStateChild serialChild = null;
+        double serialValue = 0;
+        for (int threads : BENCHMARK_THREADS) {
+            transpositionTable = new TranspositionTable(TRANSPOSITION_TABLE_BITS);
+            pool = threads > 1 ? new ForkJoinPool(threads) : null;
+            GameStateChild root = new GameStateChild(state);
+
+            metrics.startTurn();
+            long start = System.nanoTime();
+            GameStateChild child = alphaBetaSearch(root, numPlys, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            long elapsed = System.nanoTime() - start;
+            double value = rootValue;
+            if (pool != null)
+                pool.shutdown();
+
+            if (threads == 1) {
+                serialTime = elapsed;
+                serialChild = child;
+                serialValue = value;
+            }
+            boolean same = child != null && serialChild != null && child.state.equals(serialChild.state)
+                    && Double.doubleToLongBits(value) == Double.doubleToLongBits(serialValue);
+            System.out.println(threads + " threads: " + elapsed / 1e6 + " ms, speedup " + (double) serialTime / elapsed
+                    + ", value " + value + (same ? ", same move" : ", DIFFERENT move") + ", " + metrics.getNodes()
+                    + " nodes, " + (double) metrics.getPrunedJointActions() / Math.max(1, metrics.getExpandedNodes()) + " joint actions pruned per node");
+        }
+
+        transpositionTable = savedTable;
+        pool = savedPool;
+    }
+
     @Override
     public void terminalStep(State.StateView newstate, History.HistoryView statehistory) {
+        System.out.println("Search metrics, " + metrics.getTurns().size() + " turns");
+        for (SearchMetrics.Turn turn : metrics.getTurns()) {
+            System.out.println(turn);
+        }
+        if (metricsFile != null)
+            metrics.export(metricsFile);
+        metrics.clearTurns();
 
     }
 
@@ -76,67 +321,312 @@ public class MinimaxAlphaBeta extends Agent {
 
     public GameStateChild alphaBetaSearch(GameStateChild node, int depth, double alpha, double beta)
     {
-        //bestUtility method return the utility value of the child node that agent should go next.
-        double result = bestUtility(node, depth, alpha, beta);
+        timedOut = false;
+        searchDepth = Math.max(1, depth);
+        moveOrdering.newSearch();
+        if (pool != null) {
+            //the parallel search forks its tasks from inside the pool, so the root has to run there too
+            return pool.invoke(ForkJoinTask.adapt(() -> searchRoot(node, depth, alpha, beta)));
+        }
+        return searchRoot(node, depth, alpha, beta);
+    }
 
-        //find the child that has the utility value and return this child of current node
-        for (GameStateChild child: node.state.getChildren()){
-            if (result == child.state.getUtility()) {
-                return child;
-            }
+    //the root searches its children like any other node, except that a child that ties the best one so far still
+    //gets its exact value. the move returned is then the first child in getChildren order with the best value, so
+    //it doesn't depend on the move ordering or on which thread finished first
+    private GameStateChild searchRoot(GameStateChild node, int depth, double alpha, double beta)
+    {
+        //the search makes and unmakes moves on its own copy, the node's state is left alone
+        GameState state = new GameState(node.state);
+        JointActions moves = state.getJointActions();
+        metrics.expanded(moves.getPruned());
+        if (moves.size() == 0) {
+            //if there is no child it will return a null and print an error message
+            System.out.println("no legal next state to go");
+            return null;
         }
 
-        //if it cannot find it it will return a null and print an error message
-        System.out.println("no legal next state to go");
-        return null;
-    }
+        boolean maximizing = state.getTurn() == 0;
+        TranspositionTable.Entry entry = transpositionTable.probe(state.getZobristKey());
+        Best best = searchChildren(state, moves, entry == null ? -1 : entry.bestMove, Math.max(1, depth), alpha, beta, maximizing, true, null);
+        if (timedOut)
+            return null;
 
+        transpositionTable.store(state.getZobristKey(), Math.max(1, depth), best.eval, bound(best.eval, alpha, beta), best.move);
+        rootValue = best.eval;
+        completedDepth = Math.max(1, depth);
+        return state.getChild(moves.get(best.move));
+    }
 
-    //this is the helper method that use minimax alpha beta pruning to get the best utility value of the children
-    private double bestUtility(GameStateChild node, int depth, double alpha, double beta){
-        if (depth == 0 || isGameOver(node)) {
+    //this is the helper method that use minimax alpha beta pruning to get the best utility value of the children.
+    //the children are visited by making their move on the state and unmaking it afterwards, so the state is back
+    //the way it was when this returns. split is the closest ancestor whose children are being searched in parallel,
+    //null if there is none
+    private double bestUtility(GameState state, int depth, double alpha, double beta, SplitPoint split){
+        //once the time is up, or a sibling of an ancestor made the ancestor's search pointless, every call returns
+        //straight away and nothing from the unfinished search is stored
+        if (isStopped(split)) {
+            return 0;
+        }
+        metrics.node();
+        long key = state.getZobristKey();
+        //only a few nodes are timed, reading the clock costs about as much as evaluating a leaf
+        boolean sampled = SearchMetrics.isSampled(key);
+        //this simply check if all each all the footman are dead or archer are dead
+        if (depth == 0 || state.isGameOver()) {
             //System.out.println("bottom!");
-            return node.state.getUtility();
+            metrics.leaf();
+            if (!sampled)
+                return state.getUtility();
+            long start = System.nanoTime();
+            double utility = state.getUtility();
+            metrics.evaluated(System.nanoTime() - start);
+            return utility;
+        }
+
+        //the same state can be reached by moving the units in a different order, if it was already searched
+        //to the same depth its value (or a bound on it) is in the transposition table. values of deeper searches
+        //aren't used, that way a search to a given depth gives the same answer whatever is in the table
+        TranspositionTable.Entry entry = transpositionTable.probe(key, depth);
+        int tableMove = -1;
+        if (entry != null) {
+            tableMove = entry.bestMove;
+            if (entry.depth == depth) {
+                if (entry.bound == TranspositionTable.Bound.EXACT)
+                    return entry.value;
+                else if (entry.bound == TranspositionTable.Bound.LOWER)
+                    alpha = Math.max(alpha, entry.value);
+                else
+                    beta = Math.min(beta, entry.value);
+                if (beta <= alpha)
+                    return entry.value;
+            }
         }
 
-        //orderChildrenWIthHeuristics is used here inorder to have a higher chance of pruning.
-        List<GameStateChild> childrenNodes = orderChildrenWithHeuristics(node.state.getChildren());
-        if (node.state.getTurn() == 0){
+        long start = sampled ? System.nanoTime() : 0;
+        JointActions moves = state.getJointActions();
+        if (sampled)
+            metrics.generated(System.nanoTime() - start);
+        metrics.expanded(moves.getPruned());
+        boolean maximizing = state.getTurn() == 0;
+        Best best = searchChildren(state, moves, tableMove, depth, alpha, beta, maximizing, false, split);
+        if (isStopped(split))
+            return 0;
+
+        transpositionTable.store(key, depth, best.eval, bound(best.eval, alpha, beta), best.move);
+        return best.eval;
+    }
 
-            //max eval and min eval are the local max and local min here, while alpha beta are the global min/max
-            double maxEval = Double.NEGATIVE_INFINITY;
-            for (GameStateChild child: childrenNodes){
-                double eval = bestUtility(child, depth - 1, alpha, beta);
-                maxEval = Math.max(maxEval,eval);
+    //searches the children in order and returns the best one, or move -1 if the node has none.
+    //with keepTies a child only fails low if it is strictly worse than the best so far, so ties get exact values,
+    //and the best child is the tied one that comes first in generation order.
+    //the best move from the table is tried first, and only if it doesn't cut the node off are the rest put in order
+    //(see MoveOrdering).
+    //deep enough nodes search the first child alone and the rest in parallel (young brothers wait): the first child
+    //is usually the best one, and the window it sets lets the others be cut off sooner
+    private Best searchChildren(GameState state, JointActions moves, int tableMove, int depth, double alpha, double beta, boolean maximizing, boolean keepTies, SplitPoint split)
+    {
+        if (tableMove >= moves.size())
+            tableMove = -1;
+        int ply = searchDepth - depth;
+        int[] order = null;
+        //max eval and min eval are the local max and local min here, while alpha beta are the global min/max
+        Best best = new Best(maximizing, keepTies);
+        for (int i = 0; i < moves.size(); i++) {
+            if (order == null && (i > 0 || tableMove < 0))
+                order = moveOrdering.order(moves, tableMove, ply);
+            if (i == 1 && pool != null && depth >= PARALLEL_DEPTH) {
+                searchInParallel(state, moves, order, best, depth, alpha, beta, maximizing, keepTies, split);
+                break;
+            }
+            int move = order == null ? tableMove : order[i];
+            state.makeMove(moves.get(move));
+            double eval = searchChild(state, depth - 1, alpha, beta, maximizing, keepTies, split, i == 0);
+            state.unmakeMove();
+            if (isStopped(split))
+                break;
+            best.offer(move, eval);
+            if (maximizing)
                 alpha = Math.max(alpha, eval);
-                if (beta <= alpha) {
-                    break;
-                }
+            else
+                beta = Math.min(beta, eval);
+            if (beta <= alpha) {
+                moveOrdering.cutoff(moves.get(move), ply, depth);
+                metrics.cutoff(i);
+                break;
             }
-            return maxEval;
         }
-        else {
-            double minEval = Double.POSITIVE_INFINITY;
-            for (GameStateChild child : childrenNodes) {
-                double eval = bestUtility(child, depth - 1, alpha, beta);
-                minEval = Math.min(minEval, eval);
+        return best;
+    }
+
+    //the value of a child whose move has been made on the state. with null windows only the first child gets the
+    //whole window, the later ones are expected to be worse than it, and a window with nothing in it is enough to
+    //prove that. one that turns out better (or tied, with keepTies) is searched again with the whole window
+    private double searchChild(GameState state, int depth, double alpha, double beta, boolean maximizing, boolean keepTies, SplitPoint split, boolean first)
+    {
+        double low = lowerBound(alpha, maximizing, keepTies);
+        double high = upperBound(beta, maximizing, keepTies);
+        if (first || !searchMode.usesNullWindows())
+            return bestUtility(state, depth, low, high, split);
+        double eval = maximizing ? bestUtility(state, depth, low, Math.nextUp(low), split)
+                : bestUtility(state, depth, Math.nextDown(high), high, split);
+        if (eval > low && eval < high && !isStopped(split))
+            eval = bestUtility(state, depth, low, high, split);
+        return eval;
+    }
+
+    //every younger brother gets a copy of the state to make its move on, the threads can't share one
+    private void searchInParallel(GameState state, JointActions moves, int[] order, Best best, int depth, double alpha, double beta, boolean maximizing, boolean keepTies, SplitPoint split)
+    {
+        SplitPoint point = new SplitPoint(split, alpha, beta, maximizing);
+        List<ChildSearch> tasks = new ArrayList<>();
+        for (int i = 1; i < moves.size(); i++) {
+            int move = order[i];
+            tasks.add(new ChildSearch(new GameState(state), i, move, moves.get(move), depth - 1, keepTies, point));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        for (ChildSearch task : tasks) {
+            if (!Double.isNaN(task.eval))
+                best.offer(task.move, task.eval);
+        }
+    }
+
+    //the best child seen so far at a node
+    private static class Best {
+        private final boolean maximizing;
+        private final boolean lowestOnTies;
+        private int move = -1;
+        private double eval;
+
+        Best(boolean maximizing, boolean lowestOnTies) {
+            this.maximizing = maximizing;
+            this.lowestOnTies = lowestOnTies;
+            this.eval = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+
+        void offer(int move, double eval) {
+            if (this.move == -1 || (maximizing ? eval > this.eval : eval < this.eval)
+                    || (lowestOnTies && eval == this.eval && move < this.move)) {
+                this.move = move;
+                this.eval = eval;
+            }
+        }
+    }
+
+    private static double lowerBound(double alpha, boolean maximizing, boolean keepTies)
+    {
+        return keepTies && maximizing ? Math.nextDown(alpha) : alpha;
+    }
+
+    private static double upperBound(double beta, boolean maximizing, boolean keepTies)
+    {
+        return keepTies && !maximizing ? Math.nextUp(beta) : beta;
+    }
+
+    private static TranspositionTable.Bound bound(double eval, double alpha, double beta)
+    {
+        if (eval <= alpha)
+            return TranspositionTable.Bound.UPPER;
+        else if (eval >= beta)
+            return TranspositionTable.Bound.LOWER;
+        else
+            return TranspositionTable.Bound.EXACT;
+    }
+
+    private boolean isStopped(SplitPoint split)
+    {
+        if (timedOut)
+            return true;
+        if (deadline != 0 && (++clockChecks & (CLOCK_INTERVAL - 1)) == 0 && System.nanoTime() >= deadline) {
+            timedOut = true;
+            return true;
+        }
+        return split != null && split.isCancelled();
+    }
+
+    //a node whose children after the first are being searched in parallel. the window is shared, so a child that
+    //finishes early narrows it for the ones that haven't started, and a cutoff tells the ones running to stop
+    private static class SplitPoint {
+        private final SplitPoint parent;
+        private final boolean maximizing;
+        private double alpha;
+        private double beta;
+        private volatile boolean cutoff;
+
+        SplitPoint(SplitPoint parent, double alpha, double beta, boolean maximizing) {
+            this.parent = parent;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.maximizing = maximizing;
+        }
+
+        synchronized double getAlpha() {
+            return alpha;
+        }
+
+        synchronized double getBeta() {
+            return beta;
+        }
+
+        //true if this eval is the one that cut the node off
+        synchronized boolean update(double eval) {
+            if (maximizing)
+                alpha = Math.max(alpha, eval);
+            else
                 beta = Math.min(beta, eval);
-                if (beta <= alpha) {
-                    break;
-                }
+            if (beta <= alpha && !cutoff) {
+                cutoff = true;
+                return true;
             }
+            return false;
+        }
 
-            return minEval;
+        //a cutoff anywhere above makes this whole subtree pointless
+        boolean isCancelled() {
+            for (SplitPoint point = this; point != null; point = point.parent) {
+                if (point.cutoff)
+                    return true;
+            }
+            return false;
         }
     }
 
+    //one younger brother searched on the pool, eval stays NaN if the search was stopped before it finished
+    private class ChildSearch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final GameState state;
+        //where the child is in move order, and its index in the joint actions
+        private final int position;
+        private final int move;
+        private final long jointAction;
+        private final int depth;
+        private final boolean keepTies;
+        private final SplitPoint point;
+        private double eval = Double.NaN;
+
+        ChildSearch(GameState state, int position, int move, long jointAction, int depth, boolean keepTies, SplitPoint point) {
+            this.state = state;
+            this.position = position;
+            this.move = move;
+            this.jointAction = jointAction;
+            this.depth = depth;
+            this.keepTies = keepTies;
+            this.point = point;
+        }
 
-    //this simply check if all each all the footman are dead or archer are dead.
-    //because in gamestate a unit is deleted from the id list if it has a health below zero
-    private boolean isGameOver(GameStateChild node)
-    {
-        return node.state.getFootmenID().isEmpty() || node.state.getArcherID().isEmpty();
+        @Override
+        protected void compute() {
+            state.makeMove(jointAction);
+            double result = searchChild(state, depth, point.getAlpha(), point.getBeta(), point.maximizing, keepTies, point, false);
+            if (!isStopped(point)) {
+                eval = result;
+                if (point.update(result))
+                    metrics.cutoff(position);
+            }
+        }
     }
+
     /**
      * You will implement this.
      *
@@ -151,37 +641,26 @@ public class MinimaxAlphaBeta extends Agent {
      * @return The list of children sorted by your heuristic.
      */
 
-    //our method use quick sort to sort the children using their getUtility value
+    //our method sorts the children by their getUtility value, best for the side to move first. each utility is
+    //worked out once into an array and the sort runs on that, the search itself orders moves with MoveOrdering
     public List<GameStateChild> orderChildrenWithHeuristics(List<GameStateChild> children)
     {
-        return quickSort(children,0,children.size() - 1);
-    }
-
-
-    public List<GameStateChild> quickSort(List<GameStateChild> arr, int begin, int end) {
-
-        if (begin < end) {
-            int partitionIndex = partition(arr, begin, end);
-
-            quickSort(arr, begin, partitionIndex-1);
-            quickSort(arr, partitionIndex+1, end);
+        List<GameStateChild> list = new ArrayList<>(children);
+        if (list.isEmpty())
+            return list;
+        boolean maximizing = list.get(0).state.getTurn() == 1;
+        double[] utilities = new double[list.size()];
+        Integer[] order = new Integer[list.size()];
+        for (int i = 0; i < utilities.length; i++) {
+            utilities[i] = list.get(i).state.getUtility();
+            order[i] = i;
         }
-
-        return arr;
-    }
-
-   private int partition(List<GameStateChild> arr, int begin, int end) {
-        GameStateChild pivot = arr.get(end);
-        int i = (begin-1);
-
-        for (int j = begin; j < end; j++) {
-            if (arr.get(j).state.getUtility() <= pivot.state.getUtility()) {
-                i++;
-                Collections.swap(arr, i, j);
-            }
+        Arrays.sort(order, (a, b) -> maximizing ? Double.compare(utilities[b], utilities[a]) : Double.compare(utilities[a], utilities[b]));
+        List<GameStateChild> sorted = new ArrayList<>(list.size());
+        for (int index : order) {
+            sorted.add(list.get(index));
         }
-        Collections.swap(arr, i + 1, end);
-        return i+1;
+        return sorted;
     }
 
 
@@ -0,0 +1,125 @@
+package edu.cwru.sepia.agent.minimax;
+
+import java.util.Arrays;
+
+/**
+ * Decides in which order MinimaxAlphaBeta tries the joint actions of a node, so the one that cuts the node off
+ * usually comes first. The transposition table's best move goes first, then the two killer moves of the ply (the
+ * last joint actions that caused a cutoff at the same distance from the root), and then the rest by a score
+ * worked out once per joint action: how many units attack, plus how often each unit's action has caused cutoffs
+ * anywhere in the tree (the history table).
+ *
+ * One instance is shared by all the search threads. Killers and history are only hints, so threads overwriting
+ * each other's updates can make the ordering a little worse but never the result wrong.
+ */
+public class MoveOrdering {
+
+    //plys the killer table has room for, deeper nodes just don't get killers
+    private static final int MAX_PLY = 64;
+
+    //the parts of a score, from most to least important. history scores are kept under HISTORY_LIMIT so they
+    //never outweigh an attack
+    private static final long FIRST_KILLER = 1L << 38;
+    private static final long SECOND_KILLER = 1L << 37;
+    private static final int ATTACK_SHIFT = 32;
+    private static final long HISTORY_LIMIT = (1L << ATTACK_SHIFT) - 1;
+
+    //a score is sorted together with its move index in one long, the index in the low INDEX_BITS
+    private static final int INDEX_BITS = 24;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    //two killers per ply, NO_KILLER where there is none yet
+    private static final long NO_KILLER = -1;
+    private final long[][] killers = new long[MAX_PLY][2];
+
+    //indexed by slot << ACTION_BITS | action code, so a move north and an attack on a given archer are kept apart
+    private final long[] history = new long[GameContext.MAX_UNITS << GameState.ACTION_BITS];
+
+    public MoveOrdering() {
+        newSearch();
+    }
+
+    //called before every search from the root: killers of the last search are at the wrong plys now, and the history
+    //is halved so what was learned on earlier turns slowly gives way to the current position
+    public void newSearch() {
+        for (long[] ply : killers) {
+            Arrays.fill(ply, NO_KILLER);
+        }
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+    }
+
+    /**
+     * @param moves The node's joint actions
+     * @param tableMove Index of the transposition table's best move, -1 if there is none
+     * @param ply Number of moves from the root to the node
+     * @return Indexes into moves in the order to search them
+     */
+    public int[] order(JointActions moves, int tableMove, int ply) {
+        int size = moves.size();
+        int[] order = new int[size];
+        //the packed scores can't tell that many moves apart, there is no search that big anyway
+        if (size > INDEX_MASK) {
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            return order;
+        }
+
+        long firstKiller = ply < MAX_PLY ? killers[ply][0] : NO_KILLER;
+        long secondKiller = ply < MAX_PLY ? killers[ply][1] : NO_KILLER;
+        long[] keys = new long[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == tableMove)
+                continue;
+            long jointAction = moves.get(i);
+            long score;
+            if (jointAction == firstKiller)
+                score = FIRST_KILLER;
+            else if (jointAction == secondKiller)
+                score = SECOND_KILLER;
+            else
+                score = score(jointAction);
+            //the index goes in flipped, so the larger key of two equal scores is the move generated first
+            keys[count++] = score << INDEX_BITS | (INDEX_MASK - i);
+        }
+        Arrays.sort(keys, 0, count);
+
+        int position = 0;
+        if (tableMove >= 0 && tableMove < size)
+            order[position++] = tableMove;
+        for (int i = count - 1; i >= 0; i--) {
+            order[position++] = (int) (INDEX_MASK - (keys[i] & INDEX_MASK));
+        }
+        return order;
+    }
+
+    //the joint action cut off a node with depth plys below it, ply moves from the root
+    public void cutoff(long jointAction, int ply, int depth) {
+        if (ply < MAX_PLY && killers[ply][0] != jointAction) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = jointAction;
+        }
+        //cutoffs high in the tree save more work, so they count for more
+        for (int slot = 0; slot < GameContext.MAX_UNITS; slot++) {
+            int code = GameState.actionCode(jointAction, slot);
+            if (code != 0)
+                history[slot << GameState.ACTION_BITS | code] += (long) depth * depth;
+        }
+    }
+
+    private long score(long jointAction) {
+        int attacks = 0;
+        long historyScore = 0;
+        for (int slot = 0; slot < GameContext.MAX_UNITS; slot++) {
+            int code = GameState.actionCode(jointAction, slot);
+            if (code >= GameState.ATTACK)
+                attacks++;
+            if (code != 0)
+                historyScore += history[slot << GameState.ACTION_BITS | code];
+        }
+        return ((long) attacks << ATTACK_SHIFT) + Math.min(historyScore, HISTORY_LIMIT);
+    }
+}
@@ -0,0 +1,242 @@
+package edu.cwru.sepia.agent.minimax;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for what MinimaxAlphaBeta does in a turn, and a record of every turn of the episode. The counters are
+ * LongAdders so the search threads can bump them without fighting over one cache line.
+ *
+ * A turn's record has the nodes visited (every call of the search below the root, including the ones answered by
+ * the transposition table), the leaves evaluated, the nodes whose children were searched, the joint actions pruned
+ * at them, the cutoffs by the position in move order of the child that caused them, the deepest search that
+ * finished, and the time spent in all of it, generating joint actions and evaluating leaves. A leaf takes about as
+ * long as reading the clock, so generating and evaluating are only timed at one node in SAMPLE_RATE, picked by its
+ * zobrist key, and those times are scaled up to an estimate for the whole turn.
+ */
+public class SearchMetrics {
+
+    //cutoffs are counted by the position of the child that caused them, the last bucket takes every later position
+    public static final int CUTOFF_BUCKETS = 8;
+
+    //a power of two, so a key's low bits pick the sample
+    public static final int SAMPLE_RATE = 64;
+
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder leaves = new LongAdder();
+    private final LongAdder expandedNodes = new LongAdder();
+    private final LongAdder prunedJointActions = new LongAdder();
+    private final LongAdder generationNanos = new LongAdder();
+    private final LongAdder evaluationNanos = new LongAdder();
+    private final LongAdder[] cutoffs = new LongAdder[CUTOFF_BUCKETS];
+    private long turnStart;
+    private final List<Turn> turns = new ArrayList<>();
+
+    public SearchMetrics() {
+        for (int i = 0; i < CUTOFF_BUCKETS; i++) {
+            cutoffs[i] = new LongAdder();
+        }
+    }
+
+    //zeroes the counters, the turns recorded so far are kept
+    public void startTurn() {
+        nodes.reset();
+        leaves.reset();
+        expandedNodes.reset();
+        prunedJointActions.reset();
+        generationNanos.reset();
+        evaluationNanos.reset();
+        for (LongAdder bucket : cutoffs) {
+            bucket.reset();
+        }
+        turnStart = System.nanoTime();
+    }
+
+    public void node() {
+        nodes.increment();
+    }
+
+    //whether the node with this zobrist key is one of the ones timed
+    public static boolean isSampled(long key) {
+        return (key & (SAMPLE_RATE - 1)) == 0;
+    }
+
+    public void leaf() {
+        leaves.increment();
+    }
+
+    //a sampled leaf took nanos to evaluate
+    public void evaluated(long nanos) {
+        evaluationNanos.add(nanos * SAMPLE_RATE);
+    }
+
+    //a node whose joint actions were generated, pruned of them were left out
+    public void expanded(long pruned) {
+        expandedNodes.increment();
+        prunedJointActions.add(pruned);
+    }
+
+    //a sampled node took nanos to generate its joint actions
+    public void generated(long nanos) {
+        generationNanos.add(nanos * SAMPLE_RATE);
+    }
+
+    public void cutoff(int position) {
+        cutoffs[Math.min(position, CUTOFF_BUCKETS - 1)].increment();
+    }
+
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    public long getExpandedNodes() {
+        return expandedNodes.sum();
+    }
+
+    public long getPrunedJointActions() {
+        return prunedJointActions.sum();
+    }
+
+    //records the turn since startTurn, depth is the deepest search that finished
+    public Turn endTurn(int depth) {
+        long[] cutoffCounts = new long[CUTOFF_BUCKETS];
+        for (int i = 0; i < CUTOFF_BUCKETS; i++) {
+            cutoffCounts[i] = cutoffs[i].sum();
+        }
+        Turn turn = new Turn(turns.size() + 1, depth, nodes.sum(), leaves.sum(), expandedNodes.sum(), prunedJointActions.sum(),
+                cutoffCounts, System.nanoTime() - turnStart, generationNanos.sum(), evaluationNanos.sum());
+        turns.add(turn);
+        return turn;
+    }
+
+    public List<Turn> getTurns() {
+        return Collections.unmodifiableList(turns);
+    }
+
+    public void clearTurns() {
+        turns.clear();
+    }
+
+    /**
+     * Appends every recorded turn to a file, as JSON lines if the name ends in .json or .jsonl and as CSV otherwise.
+     * A CSV file gets a header when it is new. Metrics are only a report, so a file that can't be written is
+     * reported on System.err and the game goes on.
+     */
+    public void export(String path) {
+        boolean json = path.endsWith(".json") || path.endsWith(".jsonl");
+        File file = new File(path);
+        boolean header = !json && (!file.exists() || file.length() == 0);
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file, true))) {
+            if (header)
+                writer.println(Turn.csvHeader());
+            for (Turn turn : turns) {
+                writer.println(json ? turn.toJson() : turn.toCsv());
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Could not write the search metrics to " + path + ": " + e.getMessage());
+        }
+    }
+
+    //what the search did in one turn
+    public static class Turn {
+        public final int turn;
+        public final int depth;
+        public final long nodes;
+        public final long leaves;
+        public final long expandedNodes;
+        public final long prunedJointActions;
+        private final long[] cutoffs;
+        public final long elapsedNanos;
+        public final long generationNanos;
+        public final long evaluationNanos;
+
+        Turn(int turn, int depth, long nodes, long leaves, long expandedNodes, long prunedJointActions, long[] cutoffs,
+             long elapsedNanos, long generationNanos, long evaluationNanos) {
+            this.turn = turn;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.leaves = leaves;
+            this.expandedNodes = expandedNodes;
+            this.prunedJointActions = prunedJointActions;
+            this.cutoffs = cutoffs;
+            this.elapsedNanos = elapsedNanos;
+            this.generationNanos = generationNanos;
+            this.evaluationNanos = evaluationNanos;
+        }
+
+        //cutoffs caused by the child at this position in move order, the last position counts all later ones too
+        public long getCutoffs(int position) {
+            return cutoffs[Math.min(position, CUTOFF_BUCKETS - 1)];
+        }
+
+        public long getCutoffs() {
+            long total = 0;
+            for (long count : cutoffs) {
+                total += count;
+            }
+            return total;
+        }
+
+        public double getNodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+        }
+
+        //the b for which a tree of depth plys with b children per node has as many nodes as were visited
+        public double getBranchingFactor() {
+            return depth == 0 ? 0 : Math.pow(nodes, 1.0 / depth);
+        }
+
+        static String csvHeader() {
+            StringBuilder header = new StringBuilder("turn,depth,nodes,leaves,expanded,pruned,ms,nodesPerSecond,branchingFactor,generationMs,evaluationMs");
+            for (int i = 0; i < CUTOFF_BUCKETS; i++) {
+                header.append(",cutoffs").append(i);
+            }
+            return header.toString();
+        }
+
+        String toCsv() {
+            StringBuilder line = new StringBuilder();
+            line.append(turn).append(',').append(depth).append(',').append(nodes).append(',').append(leaves)
+                    .append(',').append(expandedNodes).append(',').append(prunedJointActions)
+                    .append(',').append(elapsedNanos / 1e6).append(',').append(getNodesPerSecond())
+                    .append(',').append(getBranchingFactor()).append(',').append(generationNanos / 1e6)
+                    .append(',').append(evaluationNanos / 1e6);
+            for (long count : cutoffs) {
+                line.append(',').append(count);
+            }
+            return line.toString();
+        }
+
+        String toJson() {
+            StringBuilder line = new StringBuilder();
+            line.append("{\"turn\":").append(turn).append(",\"depth\":").append(depth)
+                    .append(",\"nodes\":").append(nodes).append(",\"leaves\":").append(leaves)
+                    .append(",\"expanded\":").append(expandedNodes).append(",\"pruned\":").append(prunedJointActions)
+                    .append(",\"ms\":").append(elapsedNanos / 1e6).append(",\"nodesPerSecond\":").append(getNodesPerSecond())
+                    .append(",\"branchingFactor\":").append(getBranchingFactor())
+                    .append(",\"generationMs\":").append(generationNanos / 1e6)
+                    .append(",\"evaluationMs\":").append(evaluationNanos / 1e6).append(",\"cutoffs\":[");
+            for (int i = 0; i < cutoffs.length; i++) {
+                line.append(i == 0 ? "" : ",").append(cutoffs[i]);
+            }
+            return line.append("]}").toString();
+        }
+
+        @Override
+        public String toString() {
+            long total = getCutoffs();
+            return "turn " + turn + ": depth " + depth + ", " + nodes + " nodes, " + leaves + " leaves, "
+                    + elapsedNanos / 1e6 + " ms (" + generationNanos / 1e6 + " generating, " + evaluationNanos / 1e6
+                    + " evaluating), " + (long) getNodesPerSecond() + " nodes/s, branching factor " + getBranchingFactor()
+                    + ", " + total + " cutoffs (" + (total == 0 ? 0 : 100 * cutoffs[0] / total) + "% on the first child), "
+                    + (expandedNodes == 0 ? 0 : (double) prunedJointActions / expandedNodes) + " joint actions pruned per node";
+        }
+    }
+}
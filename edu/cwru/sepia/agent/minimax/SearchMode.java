@@ -0,0 +1,35 @@
+package edu.cwru.sepia.agent.minimax;
+
+/**
+ * The ways MinimaxAlphaBeta can search, picked by name from the agent arguments. They all find the same value and
+ * the same move, they differ in how many nodes it takes.
+ */
+public enum SearchMode {
+
+    //plain alpha beta, every child gets the node's whole window. kept as the reference the others are checked against
+    ALPHA_BETA(false, false),
+
+    //principal variation search: the first child gets the whole window, the rest a null window that only proves
+    //they are no better, and a child that turns out better is searched again with the whole window
+    PVS(true, false),
+
+    //PVS, and iterative deepening starts each depth with a narrow window around the value of the depth before,
+    //widening it only if the value falls outside
+    ASPIRATION(true, true);
+
+    private final boolean nullWindows;
+    private final boolean aspirationWindows;
+
+    SearchMode(boolean nullWindows, boolean aspirationWindows) {
+        this.nullWindows = nullWindows;
+        this.aspirationWindows = aspirationWindows;
+    }
+
+    public boolean usesNullWindows() {
+        return nullWindows;
+    }
+
+    public boolean usesAspirationWindows() {
+        return aspirationWindows;
+    }
+}
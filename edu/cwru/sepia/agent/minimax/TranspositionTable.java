@@ -0,0 +1,112 @@
+package edu.cwru.sepia.agent.minimax;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size table of search results keyed by GameState Zobrist hashes, so positions reached again through a
+ * different order of moves are not searched twice. Each entry remembers the value, the depth it was searched to,
+ * whether the value is exact or only a bound, and the index of the best child in getChildren order.
+ *
+ * Every index has two slots. The first one keeps the deepest result seen there and is only replaced by a result
+ * at least as deep, even by the same position; the second one takes whatever didn't fit in the first, so the latest
+ * result is never lost. A position can then have a result in both slots, one per depth.
+ *
+ * An entry is three longs and the first is stored xor'd with the other two. A reader that sees half of one write
+ * and half of another gets a key that doesn't match and treats it as a miss, so the table needs no locking.
+ */
+public class TranspositionTable {
+
+    public enum Bound {
+        //the value is the minimax value of the node
+        EXACT,
+        //the search failed high, the real value is at least this
+        LOWER,
+        //the search failed low, the real value is at most this
+        UPPER
+    }
+
+    public static class Entry {
+        public final double value;
+        public final int depth;
+        public final Bound bound;
+        //index of the best child in the node's getChildren list, -1 if there is none
+        public final int bestMove;
+
+        private Entry(double value, int depth, Bound bound, int bestMove) {
+            this.value = value;
+            this.depth = depth;
+            this.bound = bound;
+            this.bestMove = bestMove;
+        }
+    }
+
+    private static final Bound[] BOUNDS = Bound.values();
+
+    private final int mask;
+    private final long[] checks;
+    private final long[] values;
+    private final long[] data;
+
+    /**
+     * @param sizeBits The table holds 2 * 2^sizeBits entries
+     */
+    public TranspositionTable(int sizeBits) {
+        mask = (1 << sizeBits) - 1;
+        int slots = 2 << sizeBits;
+        checks = new long[slots];
+        values = new long[slots];
+        data = new long[slots];
+    }
+
+    /**
+     * @return The entry stored for this hash, or null if there is none
+     */
+    public Entry probe(long key) {
+        int slot = ((int) key & mask) << 1;
+        Entry entry = entry(slot, key);
+        return entry != null ? entry : entry(slot + 1, key);
+    }
+
+    /**
+     * @return The entry stored for this hash that was searched to this depth if there is one, otherwise the same as
+     * probe(key)
+     */
+    public Entry probe(long key, int depth) {
+        int slot = ((int) key & mask) << 1;
+        Entry first = entry(slot, key);
+        if (first != null && first.depth == depth)
+            return first;
+        Entry second = entry(slot + 1, key);
+        return second != null && (first == null || second.depth == depth) ? second : first;
+    }
+
+    public void store(long key, int depth, double value, Bound bound, int bestMove) {
+        int first = ((int) key & mask) << 1;
+        long packed = ((long) (bestMove + 1) << 32) | ((long) bound.ordinal() << 16) | (depth + 1);
+        long firstPacked = data[first];
+        int i = firstPacked == 0 || depth >= depthOf(firstPacked) ? first : first + 1;
+
+        long bits = Double.doubleToLongBits(value);
+        values[i] = bits;
+        data[i] = packed;
+        checks[i] = key ^ bits ^ packed;
+    }
+
+    //the values depend on the map, so the table has to be emptied when a new episode starts
+    public void clear() {
+        Arrays.fill(data, 0);
+    }
+
+    private Entry entry(int i, long key) {
+        long value = values[i];
+        long packed = data[i];
+        if (packed == 0 || (checks[i] ^ value ^ packed) != key)
+            return null;
+        return new Entry(Double.longBitsToDouble(value), depthOf(packed), BOUNDS[(int) (packed >>> 16) & 3], (int) (packed >>> 32) - 1);
+    }
+
+    //depth is stored plus one so a packed value of 0 always means an empty slot
+    private static int depthOf(long packed) {
+        return (int) (packed & 0xffff) - 1;
+    }
+}
@@ -0,0 +1,42 @@
+package edu.cwru.sepia.agent.minimax;
+
+/**
+ * Zobrist keys for hashing a GameState. Every (unit, position), (unit, hp) pair and the side to move gets a random
+ * looking 64 bit key, and the hash of a state is the xor of the keys of everything in it, so a move only has to
+ * xor out the old key and xor in the new one.
+ *
+ * The keys are made by scrambling the unit id and the value instead of being looked up in a table, so they don't
+ * depend on the map size or on which units are still alive, and stay the same from one turn to the next.
+ */
+public final class Zobrist {
+
+    private static final long POSITION_SEED = 0x5851f42d4c957f2dL;
+    private static final long HEALTH_SEED = 0x14057b7ef767814fL;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    //xor'd in when it is the archers' turn
+    public static final long SIDE_TO_MOVE = mix(0x2545f4914f6cdd1dL);
+
+    private Zobrist() {
+    }
+
+    public static long position(int unitID, int x, int y) {
+        return mix(POSITION_SEED + pack(unitID, x, y) * GOLDEN_GAMMA);
+    }
+
+    //every hp value is its own bucket, the utility and the attacks both depend on the exact hp
+    public static long health(int unitID, int hp) {
+        return mix(HEALTH_SEED + pack(unitID, hp, 0) * GOLDEN_GAMMA);
+    }
+
+    private static long pack(int unitID, int first, int second) {
+        return ((long) unitID << 40) ^ ((long) (first & 0xfffff) << 20) ^ (second & 0xfffff);
+    }
+
+    //the splitmix64 finalizer, spreads every input bit over the whole output
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}